@@ -0,0 +1,37 @@
+package benchmarks;
+
+import benchmarks.entities.Car;
+import benchmarks.entities.Door;
+import benchmarks.entities.Engine;
+import benchmarks.entities.Student;
+import java.time.LocalDate;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.IntStream;
+
+/**
+ * Shared benchmark data.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+public class BenchmarkData {
+
+    static Student jan = student( 123 );
+
+    static Car car = new Car( "BMW", "Black",
+            new Engine( "Diesel", 6, 250.0D ),
+            new Door[]{ new Door( "leftDoor", "red" ),
+                new Door( "rightDoor", "white" ) } );
+
+    static Student student( int snummer ) {
+        return new Student( snummer, "Klaassen", null, "Jan",
+                LocalDate.of( 2001, 10, 7 ), 2018,
+                "jan.klaassen@student.fantys.nl", "M", "INF-ABC", true );
+    }
+
+    static List<Student> students( int count ) {
+        return IntStream.range( 0, count )
+                .mapToObj( BenchmarkData::student )
+                .collect( toList() );
+    }
+}
@@ -0,0 +1,26 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler switched on, so allocation per
+ * operation ({@code gc.alloc.rate.norm}) is part of every report. Accepts the
+ * usual jmh command line options, e.g. a benchmark regex.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+public class BenchmarkRunner {
+
+    public static void main( String[] args ) throws RunnerException,
+            CommandLineOptionException {
+        new Runner( new OptionsBuilder()
+                .parent( new CommandLineOptions( args ) )
+                .addProfiler( GCProfiler.class )
+                .build() ).run();
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import benchmarks.entities.Student;
+import csvfilepersistence.CsvPersitor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Startup of a CsvPersitor from a snapshot of students, sequential and
+ * parallel, and writing a snapshot of the loaded store.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class CsvLoadBenchmark {
+
+    @Param( { "100000", "1000000" } )
+    int studentCount;
+
+    @Param( { "SEQUENTIAL", "PARALLEL" } )
+    CsvPersitor.LoadMode loadMode;
+
+    Path dir;
+    String storageName;
+    CsvPersitor<Integer, Student> loaded;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory( "csvload" );
+        storageName = dir.resolve( "students.csv" ).toString();
+        try ( CsvPersitor<Integer, Student> dao = open() ) {
+            for ( int i = 0; i < studentCount; i++ ) {
+                dao.save( BenchmarkData.student( i ) );
+            }
+            dao.snapshot();
+        }
+        loaded = open();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loaded.close();
+        try ( Stream<Path> files = Files.list( dir ) ) {
+            for ( Path file : (Iterable<Path>) files::iterator ) {
+                Files.delete( file );
+            }
+        }
+        Files.delete( dir );
+    }
+
+    private CsvPersitor<Integer, Student> open() {
+        return new CsvPersitor<>( storageName, Student.class, loadMode,
+                CsvPersitor.SyncPolicy.NEVER );
+    }
+
+    @Benchmark
+    public int load() {
+        try ( CsvPersitor<Integer, Student> dao = open() ) {
+            return dao.size();
+        }
+    }
+
+    @Benchmark
+    public void snapshot() {
+        loaded.snapshot();
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import benchmarks.entities.Student;
+import csvfilepersistence.CsvPersitor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saves through the change log of a CsvPersitor, from one thread and from
+ * several at once, so the effect of group commit shows per sync policy.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class CsvPersitorBenchmark {
+
+    @Param( { "ALWAYS", "NEVER" } )
+    CsvPersitor.SyncPolicy syncPolicy;
+
+    Path dir;
+    CsvPersitor<Integer, Student> dao;
+    final AtomicInteger nextKey = new AtomicInteger();
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory( "csvbench" );
+        dao = new CsvPersitor<>( dir.resolve( "students.csv" ).toString(),
+                Student.class, CsvPersitor.LoadMode.SEQUENTIAL, syncPolicy );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dao.close();
+        try ( Stream<Path> files = Files.list( dir ) ) {
+            for ( Path file : (Iterable<Path>) files::iterator ) {
+                Files.delete( file );
+            }
+        }
+        Files.delete( dir );
+    }
+
+    @Benchmark
+    public void save() {
+        dao.save( BenchmarkData.student( nextKey.getAndIncrement() ) );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public void saveConcurrently() {
+        dao.save( BenchmarkData.student( nextKey.getAndIncrement() ) );
+    }
+}
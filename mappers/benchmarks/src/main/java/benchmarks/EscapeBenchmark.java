@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tojsonmarshaller.ToJsonMarshaller;
+
+/**
+ * Json string quoting. The concatenation is the unescaped baseline; clean
+ * strings should cost about the same with escaping.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class EscapeBenchmark {
+
+    String clean = "Jan Klaassen, Hoofdstraat 12, Venlo";
+    String dirty = "Jan \"Tricky\" Klaassen\tHoofdstraat \\ 12";
+
+    @Benchmark
+    public String concatenateClean() {
+        return '"' + clean + '"';
+    }
+
+    @Benchmark
+    public String quoteClean() {
+        return ToJsonMarshaller.asJson( clean );
+    }
+
+    @Benchmark
+    public String quoteDirty() {
+        return ToJsonMarshaller.asJson( dirty );
+    }
+}
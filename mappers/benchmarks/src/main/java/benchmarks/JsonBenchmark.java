@@ -0,0 +1,98 @@
+package benchmarks;
+
+import benchmarks.entities.Car;
+import benchmarks.entities.Student;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tojsonmarshaller.FromJsonUnmarshaller;
+import tojsonmarshaller.JsonLayout;
+import tojsonmarshaller.ToJsonMarshaller;
+
+/**
+ * Json marshalling of a nested Car/Engine/Door[] graph and of a student
+ * collection, compact and indented, in parallel, streamed to a sink and as
+ * JSON Lines, and reading the students back. Plus a primitive array.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class JsonBenchmark {
+
+    @Param( { "1000", "50000" } )
+    int studentCount;
+
+    Car car;
+    List<Student> students;
+    String studentsJson;
+    double[] measurements;
+
+    @Setup
+    public void setup() {
+        car = BenchmarkData.car;
+        students = BenchmarkData.students( studentCount );
+        studentsJson = ToJsonMarshaller.asJson( students );
+        measurements = new double[ studentCount ];
+        for ( int i = 0; i < studentCount; i++ ) {
+            measurements[ i ] = i * 0.25;
+        }
+    }
+
+    @Benchmark
+    public String carAsJson() {
+        return ToJsonMarshaller.asJson( car );
+    }
+
+    @Benchmark
+    public String studentsAsJson() {
+        return ToJsonMarshaller.asJson( students );
+    }
+
+    @Benchmark
+    public String studentsAsPrettyJson() {
+        return ToJsonMarshaller.asJson( students, JsonLayout.pretty( 2 ) );
+    }
+
+    @Benchmark
+    public String measurementsAsJson() {
+        return ToJsonMarshaller.asJson( measurements );
+    }
+
+    @Benchmark
+    public String studentsAsJsonParallel() {
+        return ToJsonMarshaller.asJsonParallel( students );
+    }
+
+    @Benchmark
+    public void studentsWriteJson() throws IOException {
+        ToJsonMarshaller.writeJson( students, OutputStream.nullOutputStream() );
+    }
+
+    @Benchmark
+    public void studentsWriteJsonLines() throws IOException {
+        ToJsonMarshaller.writeJsonLines( students.stream(), OutputStream
+                .nullOutputStream() );
+    }
+
+    @Benchmark
+    public List<Student> studentsFromJson() {
+        return FromJsonUnmarshaller.listFromJson( studentsJson, Student.class );
+    }
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import benchmarks.entities.Student;
+import genericmapper.FieldPair;
+import genericmapper.Mapper;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Single entity mapper operations, generated mapper against the reflective
+ * base Mapper where both exist.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class MapperBenchmark {
+
+    Mapper<Student, Integer> generated;
+    Mapper<Student, Integer> reflective;
+    Student jan;
+    Object[] janData;
+    Object[] buffer;
+    FieldPair[] replacements;
+    int[] replacementIndices;
+    Object[] replacementValues;
+    int cohortIndex;
+
+    @Setup
+    public void setup() {
+        generated = Mapper.mapperFor( Student.class );
+        reflective = new ReflectiveStudentMapper();
+        jan = BenchmarkData.jan;
+        janData = generated.deconstruct( jan );
+        buffer = new Object[ generated.getArraySize() ];
+        replacements = new FieldPair[]{ new FieldPair( "gender", "F" ),
+            new FieldPair( "firstname", "Pieternel" ) };
+        replacementIndices = new int[]{ generated.fieldIndex( "gender" ),
+            generated.fieldIndex( "firstname" ) };
+        replacementValues = new Object[]{ "F", "Pieternel" };
+        cohortIndex = generated.fieldIndex( "cohort" );
+    }
+
+    @Benchmark
+    public Student constructGenerated() {
+        return generated.construct( janData );
+    }
+
+    @Benchmark
+    public Student constructReflective() {
+        return reflective.construct( janData );
+    }
+
+    @Benchmark
+    public Object[] deconstruct() {
+        return generated.deconstruct( jan );
+    }
+
+    @Benchmark
+    public Object[] deconstructInto() {
+        return generated.deconstructInto( jan, buffer );
+    }
+
+    @Benchmark
+    public Object[] deconstructNonGenerated() {
+        return generated.deconstructNonGenerated( jan );
+    }
+
+    @Benchmark
+    public void stream( Blackhole bh ) {
+        generated.stream( jan ).forEach( bh::consume );
+    }
+
+    @Benchmark
+    public void streamNonGenerated( Blackhole bh ) {
+        generated.streamNonGenerated( jan ).forEach( bh::consume );
+    }
+
+    @Benchmark
+    public Student replaceFields() {
+        return generated.replaceFields( jan, replacements );
+    }
+
+    @Benchmark
+    public Student replaceFieldsByIndex() {
+        return generated.replaceFields( jan, replacementIndices,
+                replacementValues );
+    }
+
+    @Benchmark
+    public int getIntGenerated() {
+        return generated.getInt( jan, cohortIndex );
+    }
+
+    @Benchmark
+    public int getIntReflective() {
+        return reflective.getInt( jan, cohortIndex );
+    }
+}
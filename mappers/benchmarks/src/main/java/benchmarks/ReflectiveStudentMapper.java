@@ -0,0 +1,46 @@
+package benchmarks;
+
+import benchmarks.entities.Student;
+import genericmapper.Mapper;
+import java.lang.invoke.MethodHandles;
+import java.util.function.Function;
+
+/**
+ * Student mapper without a construct override, so construction goes through
+ * the reflective all fields constructor of {@link Mapper}. Not registered, so
+ * {@link Mapper#mapperFor(java.lang.Class) } still returns the generated one.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+public class ReflectiveStudentMapper extends Mapper<Student, Integer> {
+
+    public ReflectiveStudentMapper() {
+        super( Student.class, MethodHandles.lookup() );
+    }
+
+    @Override
+    public Object[] deconstruct( Student s ) {
+        return new Object[]{
+            s.getSnummer(),
+            s.getLastname(),
+            s.getTussenvoegsel(),
+            s.getFirstname(),
+            s.getDob(),
+            s.getCohort(),
+            s.getEmail(),
+            s.getGender(),
+            s.getStudent_class(),
+            s.getActive()
+        };
+    }
+
+    @Override
+    public Function<Student, Integer> keyExtractor() {
+        return Student::getSnummer;
+    }
+
+    @Override
+    public Class<Integer> keyType() {
+        return Integer.class;
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks.entities;
+
+import nl.fontys.sebivenlo.sebiannotations.ID;
+
+/**
+ * Car with a nested entity and an entity array, to benchmark the marshalling
+ * of object graphs.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+public class Car {
+
+    @ID
+    private final String brand;
+    private final String color;
+    private final Engine engine;
+    private final Door[] doors;
+
+    public Car( String brand, String color, Engine engine, Door[] doors ) {
+        this.brand = brand;
+        this.color = color;
+        this.engine = engine;
+        this.doors = doors;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public Door[] getDoors() {
+        return doors;
+    }
+}
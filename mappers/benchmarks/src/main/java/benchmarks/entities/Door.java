@@ -0,0 +1,28 @@
+package benchmarks.entities;
+
+import nl.fontys.sebivenlo.sebiannotations.ID;
+
+/**
+ * Door, element of the door array in {@link Car}.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+public class Door {
+
+    @ID
+    private final String doorName;
+    private final String color;
+
+    public Door( String doorName, String color ) {
+        this.doorName = doorName;
+        this.color = color;
+    }
+
+    public String getDoorName() {
+        return doorName;
+    }
+
+    public String getColor() {
+        return color;
+    }
+}
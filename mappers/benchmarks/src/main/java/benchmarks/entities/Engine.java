@@ -0,0 +1,34 @@
+package benchmarks.entities;
+
+import nl.fontys.sebivenlo.sebiannotations.ID;
+
+/**
+ * Engine, nested in {@link Car}.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+public class Engine {
+
+    @ID
+    private final String type;
+    private final int cilinders;
+    private final double hp;
+
+    public Engine( String type, int cilinders, double hp ) {
+        this.type = type;
+        this.cilinders = cilinders;
+        this.hp = hp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getCilinders() {
+        return cilinders;
+    }
+
+    public double getHp() {
+        return hp;
+    }
+}
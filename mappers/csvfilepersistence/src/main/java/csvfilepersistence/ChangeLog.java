@@ -0,0 +1,194 @@
+package csvfilepersistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append only log of changes, one csv record per line.
+ *
+ * Appending and committing are separate steps. Any number of threads append
+ * records to a shared pending buffer and then commit their own record. The
+ * first committer to get the write lock writes everything pending, and
+ * forces it to the device when the sync policy says so. Threads that were
+ * waiting for the lock usually find their record already written by then,
+ * so a burst of changes costs one write and one force.
+ *
+ * After a failed write the log refuses all further commits, because the
+ * records of the failed batch are gone and a later success would hide that.
+ *
+ * The log can be rotated, moving what is written so far aside so that a
+ * snapshot can be taken while new changes go to a fresh file.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+final class ChangeLog implements Closeable {
+
+    private final Path file;
+    private final boolean force;
+    private final Object writeLock = new Object();
+    private FileChannel channel; // guarded by writeLock
+
+    // guarded by this
+    private StringBuilder pending = new StringBuilder();
+    private long appended;
+
+    private volatile long committed;
+    private volatile long size;
+    private IOException failure; // guarded by writeLock
+
+    /**
+     * Open the log for appending, creating it when needed.
+     *
+     * @param file  of the log
+     * @param force true to force every commit to the device
+     *
+     * @throws IOException when the file cannot be opened
+     */
+    ChangeLog( Path file, boolean force ) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open( file, CREATE, WRITE, APPEND );
+        this.size = channel.size();
+        this.force = force;
+    }
+
+    /**
+     * Add a record to the pending changes.
+     *
+     * @param record csv record without line break
+     *
+     * @return the ticket to commit with
+     */
+    synchronized long append( String record ) {
+        pending.append( record ).append( '\n' );
+        return ++appended;
+    }
+
+    /**
+     * Make sure the record with the ticket, and all before it, are written.
+     *
+     * @param ticket of the record
+     *
+     * @throws IOException when writing fails, now or before
+     */
+    void commit( long ticket ) throws IOException {
+        if ( committed >= ticket ) {
+            return;
+        }
+        synchronized ( writeLock ) {
+            if ( committed >= ticket ) {
+                return;
+            }
+            writePending();
+        }
+    }
+
+    /**
+     * Write all pending records, holding the write lock.
+     */
+    private void writePending() throws IOException {
+        if ( null != failure ) {
+            throw new IOException( "change log failed before", failure );
+        }
+        StringBuilder batch;
+        long last;
+        synchronized ( this ) {
+            batch = pending;
+            last = appended;
+            pending = new StringBuilder( batch.capacity() );
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode( batch.toString() );
+        int length = bytes.remaining();
+        try {
+            while ( bytes.hasRemaining() ) {
+                channel.write( bytes );
+            }
+            if ( force ) {
+                channel.force( false );
+            }
+        } catch ( IOException ex ) {
+            failure = ex;
+            throw ex;
+        }
+        size += length;
+        committed = last;
+    }
+
+    /**
+     * Bytes in the current log file.
+     *
+     * @return the size
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Move everything logged so far to another file and continue in an empty
+     * log. When the other file exists, the log is appended to it, so that no
+     * change is lost when a rotated log was not cleaned up.
+     *
+     * @param rotated file to move the log to
+     *
+     * @throws IOException when moving fails; the log refuses further commits
+     */
+    void rotate( Path rotated ) throws IOException {
+        synchronized ( writeLock ) {
+            writePending();
+            try {
+                channel.force( false );
+                channel.close();
+                if ( Files.exists( rotated ) ) {
+                    appendTo( rotated );
+                } else {
+                    Files.move( file, rotated, StandardCopyOption.ATOMIC_MOVE );
+                }
+                channel = FileChannel.open( file, CREATE, WRITE, APPEND );
+                size = channel.size();
+            } catch ( IOException ex ) {
+                failure = ex;
+                throw ex;
+            }
+        }
+    }
+
+    private void appendTo( Path rotated ) throws IOException {
+        try ( FileChannel from = FileChannel.open( file, READ );
+                FileChannel to = FileChannel.open( rotated, WRITE, APPEND ) ) {
+            long position = 0;
+            long length = from.size();
+            while ( position < length ) {
+                position += from.transferTo( position, length - position, to );
+            }
+            to.force( false );
+        }
+        Files.delete( file );
+    }
+
+    /**
+     * Commit all, force and close. Closing again does nothing.
+     *
+     * @throws IOException when writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized ( writeLock ) {
+            if ( !channel.isOpen() ) {
+                return;
+            }
+            try ( FileChannel closing = channel ) {
+                writePending();
+                closing.force( false );
+            }
+        }
+    }
+}
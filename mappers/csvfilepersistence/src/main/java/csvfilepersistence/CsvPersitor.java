@@ -1,89 +1,433 @@
 package csvfilepersistence;
 
 import genericmapper.Mapper;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.PrintStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import static java.util.stream.Collectors.joining;
-import java.util.stream.Stream;
 //import nl.fontys.sebivenlo.dao.memory.InMemoryDAO;
 
 /**
+ * In memory DAO, kept in a concurrent map indexed by the entity key. The
+ * storage file is RFC 4180 csv in UTF-8, one record per entity with the fields
+ * in mapper order.
+ *
+ * The key of an entity is taken with the key extractor of its mapper, so get,
+ * save and delete are single map operations and safe to call from many threads
+ * at once. getAll returns a snapshot that does not change with later saves or
+ * deletes.
+ *
+ * Every save and delete is appended to a change log next to the storage file,
+ * {@code storageName + ".log"}, before it returns. Concurrent changes share
+ * one write, see {@link SyncPolicy}. At startup the storage file is loaded and
+ * the log replayed on top of it. A large storage file can be loaded in
+ * parallel, see {@link LoadMode#PARALLEL}.
+ *
+ * A {@link #snapshot() snapshot} rewrites the storage file and empties the
+ * log, which keeps the replay at startup short. Snapshots can be taken in the
+ * background, periodically or when the log grows too large; gets are never
+ * blocked by them and saves only while the log is switched to a new file.
  *
  * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
- * @param <E>
+ * @param <K> key type
+ * @param <E> entity type
  */
-public class CsvPersitor<K, E> implements DAO<K, E> {
+public class CsvPersitor<K, E> implements DAO<K, E>, AutoCloseable {
 
     private final ConcurrentMap<K, E> storage = new ConcurrentHashMap<K, E>();
 
     private final String storageName;
     private final Class<E> entityType;
+    private final Mapper<E, K> mapper;
+    private final Function<? super E, ? extends K> keyExtractor;
+    private final ChangeLog changeLog;
+    private final Thread closeOnShutdown;
+
+    private final Object snapshotLock = new Object();
+    /**
+     * Saves and deletes hold the read lock while they change the map and
+     * append to the log, rotation holds the write lock.
+     */
+    private final ReadWriteLock changeLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean snapshotQueued = new AtomicBoolean();
+    private volatile long maxLogSize;
+    private ScheduledExecutorService snapshotter; // guarded by this
+
+    /**
+     * Size of the pieces a file is cut into for a parallel load.
+     */
+    static final int LOAD_CHUNK_SIZE = 1 << 22;
+
+    /**
+     * How the storage file is read at startup.
+     */
+    public enum LoadMode {
+        /**
+         * Stream the file on the calling thread.
+         */
+        SEQUENTIAL,
+        /**
+         * Memory map the file, cut it into chunks at record boundaries and
+         * parse the chunks on the common fork join pool. When the file holds
+         * the same key more than once, it is undefined which entity is kept.
+         */
+        PARALLEL
+    }
+
+    /**
+     * When a committed change reaches the device.
+     */
+    public enum SyncPolicy {
+        /**
+         * Force every commit to the device before save or delete returns.
+         * Survives a power failure.
+         */
+        ALWAYS,
+        /**
+         * Write every commit, but leave it to the operating system when it
+         * reaches the device. Survives a crash of the process, not of the
+         * machine.
+         */
+        NEVER
+    }
 
     public CsvPersitor( String storageName, Class<E> entityType ) {
+        this( storageName, entityType, LoadMode.SEQUENTIAL );
+    }
+
+    public CsvPersitor( String storageName, Class<E> entityType,
+            LoadMode loadMode ) {
+        this( storageName, entityType, loadMode, SyncPolicy.ALWAYS );
+    }
+
+    /**
+     * Load the storage file and replay the change log, if they exist.
+     *
+     * @param storageName file name
+     * @param entityType  stored
+     * @param loadMode    for the storage file
+     * @param syncPolicy  for the change log
+     *
+     * @throws UncheckedIOException when the storage file or a change log
+     * cannot be read, or the change log cannot be opened
+     */
+    public CsvPersitor( String storageName, Class<E> entityType,
+            LoadMode loadMode, SyncPolicy syncPolicy ) {
         this.storageName = storageName;
         this.entityType = entityType;
-        if ( Files.exists( Paths.get( this.storageName ) ) ) {
-            System.out.println( "loaded " + storageName );
-            this.load( this.storageName );
+        this.mapper = Mapper.mapperFor( entityType );
+        this.keyExtractor = mapper.keyExtractor();
+        try {
+            if ( Files.exists( Paths.get( this.storageName ) ) ) {
+                this.load( this.storageName, loadMode );
+            }
+            replay( rotatedLogFile() );
+            replay( logFile() );
+            this.changeLog = new ChangeLog( logFile(),
+                    syncPolicy == SyncPolicy.ALWAYS );
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
         }
-        Thread saveThread = new Thread( () -> persistToDisk() );
-        Runtime.getRuntime().addShutdownHook( saveThread );
+        closeOnShutdown = new Thread( this::closeLog );
+        Runtime.getRuntime().addShutdownHook( closeOnShutdown );
     }
 
     public CsvPersitor( Class<E> entityType ) {
         this( entityType.getName() + "csv", entityType );
     }
 
+    @Override
     public E get( K k ) {
-        throw new UnsupportedOperationException( "Not supported yet." ); //To change body of generated methods, choose Tools | Templates.
+        return storage.get( k );
     }
 
+    /**
+     * Insert or replace the entity under its key, and log it. The change is
+     * logged while the key is locked in the storage map, so the log has the
+     * changes of one key in the same order as the map. A snapshot cannot
+     * rotate the log between the change of the map and its log record.
+     *
+     * @param e to save
+     *
+     * @throws IllegalArgumentException when the entity has no key
+     * @throws UncheckedIOException     when the log cannot be written; the
+     * entity is saved in memory but may be lost on restart
+     */
+    @Override
     public void save( E e ) {
-        throw new UnsupportedOperationException( "Not supported yet." ); //To change body of generated methods, choose Tools | Templates.
+        String record = "S," + entityToString( e );
+        K key = keyOf( e );
+        long[] ticket = new long[ 1 ];
+        Lock lock = changeLock.readLock();
+        lock.lock();
+        try {
+            storage.compute( key, ( k, old ) -> {
+                ticket[ 0 ] = changeLog.append( record );
+                return e;
+            } );
+        } finally {
+            lock.unlock();
+        }
+        commit( ticket[ 0 ] );
     }
 
+    /**
+     * Remove the entity with the key, and log it when there was one.
+     *
+     * @param k key
+     *
+     * @throws UncheckedIOException when the log cannot be written
+     */
+    @Override
     public void delete( K k ) {
-        throw new UnsupportedOperationException( "Not supported yet." ); //To change body of generated methods, choose Tools | Templates.
+        String record = "D," + quoteWhenNeeded( k, '"' );
+        long[] ticket = new long[ 1 ];
+        Lock lock = changeLock.readLock();
+        lock.lock();
+        try {
+            storage.computeIfPresent( k, ( key, old ) -> {
+                ticket[ 0 ] = changeLog.append( record );
+                return null;
+            } );
+        } finally {
+            lock.unlock();
+        }
+        commit( ticket[ 0 ] );
     }
 
+    private void commit( long ticket ) {
+        try {
+            changeLog.commit( ticket );
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+        long max = maxLogSize;
+        if ( max > 0 && changeLog.size() > max ) {
+            queueSnapshot();
+        }
+    }
+
+    /**
+     * Get a snapshot of all entities.
+     *
+     * @return an unmodifiable list, in no particular order
+     */
+    @Override
     public List<E> getAll() {
-        throw new UnsupportedOperationException( "Not supported yet." ); //To change body of generated methods, choose Tools | Templates.
+        return List.copyOf( storage.values() );
+    }
+
+    private void put( E e ) {
+        storage.put( keyOf( e ), e );
     }
 
-    private void persistToDisk() {
-        if ( storage.isEmpty() ) {
-            return; // nothing to do
+    private K keyOf( E e ) {
+        K key = keyExtractor.apply( e );
+        if ( null == key ) {
+            throw new IllegalArgumentException( "no key in " + e );
         }
-        try ( PrintStream out = new PrintStream( getStorageName() ); ) {
-            this.storage.values()
-                    .stream()
-                    .map( this::entityToString )
-                    .forEach( out::println );
-        } catch ( FileNotFoundException ex ) {
+        return key;
+    }
+
+    /**
+     * Write the storage to the storage file and empty the change log.
+     *
+     * The log is first rotated to {@code storageName + ".log.old"}, so that
+     * changes made while the snapshot is written go to a fresh log. The
+     * snapshot is written to {@code storageName + ".tmp"} which then replaces
+     * the storage file, and only after that the rotated log is deleted. A crash
+     * at any point leaves a storage file and logs that replay to the same
+     * state.
+     *
+     * The rotation waits for changes that are between their map update and
+     * their log append. After it, every change in the rotated log is visible
+     * in the map before the snapshot iterates it, and every later change is
+     * in the new log. Replaying a later change on top of a snapshot that
+     * already holds it gives the same state, so iterating the map needs no
+     * lock.
+     *
+     * Only one snapshot is written at a time; a second caller waits.
+     *
+     * @throws UncheckedIOException when the snapshot cannot be written
+     */
+    public void snapshot() {
+        synchronized ( snapshotLock ) {
+            Path storageFile = Path.of( storageName ).toAbsolutePath();
+            Path temp = Path.of( storageName + ".tmp" ).toAbsolutePath();
+            try {
+                rotateLog();
+                writeSnapshot( temp );
+                Files.move( temp, storageFile, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING );
+                forceDirectory( storageFile.getParent() );
+                Files.deleteIfExists( rotatedLogFile() );
+            } catch ( IOException ex ) {
+                throw new UncheckedIOException( ex );
+            }
+        }
+    }
+
+    private void rotateLog() throws IOException {
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try {
+            changeLog.rotate( rotatedLogFile() );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take a snapshot in the background at a fixed rate.
+     *
+     * @param period between the starts of two snapshots
+     */
+    public synchronized void snapshotEvery( Duration period ) {
+        snapshotter().scheduleAtFixedRate( this::backgroundSnapshot,
+                period.toMillis(), period.toMillis(), TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * Take a snapshot in the background when the change log has grown beyond
+     * the given size. The size is checked after each commit.
+     *
+     * @param bytes maximum log size, zero or less to stop checking
+     */
+    public synchronized void snapshotWhenLogExceeds( long bytes ) {
+        snapshotter();
+        maxLogSize = bytes;
+    }
+
+    private synchronized ScheduledExecutorService snapshotter() {
+        if ( null == snapshotter ) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor( r -> {
+                Thread t = new Thread( r, "snapshot " + storageName );
+                t.setDaemon( true );
+                return t;
+            } );
+        }
+        return snapshotter;
+    }
+
+    private void queueSnapshot() {
+        if ( snapshotQueued.compareAndSet( false, true ) ) {
+            ScheduledExecutorService executor;
+            synchronized ( this ) {
+                executor = snapshotter;
+            }
+            try {
+                executor.execute( () -> {
+                    snapshotQueued.set( false );
+                    backgroundSnapshot();
+                } );
+            } catch ( RejectedExecutionException closed ) {
+                snapshotQueued.set( false );
+            }
+        }
+    }
+
+    private void backgroundSnapshot() {
+        try {
+            snapshot();
+        } catch ( RuntimeException ex ) {
             Logger.getLogger( CsvPersitor.class.getName() )
-                    .log( Level.SEVERE, null, ex );
+                    .log( Level.SEVERE, "snapshot of " + storageName, ex );
+        }
+    }
+
+    /**
+     * Write all entities to a file and force it to the device.
+     */
+    private void writeSnapshot( Path file ) throws IOException {
+        Object[] buffer = new Object[ mapper.getArraySize() ];
+        try ( FileChannel channel = FileChannel.open( file, CREATE, WRITE,
+                TRUNCATE_EXISTING );
+                Writer out = new BufferedWriter( Channels.newWriter( channel,
+                        StandardCharsets.UTF_8 ), 1 << 16 ) ) {
+            for ( E e : this.storage.values() ) {
+                out.write( fieldValuesToString( mapper.deconstructInto( e,
+                        buffer ) ) );
+                out.write( '\n' );
+            }
+            out.flush();
+            channel.force( false );
+        }
+    }
+
+    /**
+     * Make a rename in the directory durable, where the platform allows.
+     */
+    private static void forceDirectory( Path dir ) {
+        try ( FileChannel channel = FileChannel.open( dir, READ ) ) {
+            channel.force( true );
+        } catch ( IOException ex ) {
+            // not supported on every platform
         }
     }
 
     String entityToString( E e ) {
-        Mapper<E> mapper = Mapper.mapperFor( entityType );
-        return Stream.of( mapper.deconstruct( e ) )
-                .flatMap( Stream::of )
-                .map( x -> quoteWhenNeeded( x, '"' ) ).collect( joining( "," ) );
+        return fieldValuesToString( mapper.deconstruct( e ) );
     }
 
+    /**
+     * Turn the deconstructed field values of an entity into a csv line.
+     *
+     * @param fieldValues as produced by the mapper
+     * @return the line, without line separator
+     */
+    String fieldValuesToString( Object[] fieldValues ) {
+        StringBuilder line = new StringBuilder();
+        for ( int i = 0; i < fieldValues.length; i++ ) {
+            if ( i > 0 ) {
+                line.append( ',' );
+            }
+            line.append( quoteWhenNeeded( fieldValues[ i ], '"' ) );
+        }
+        return line.toString();
+    }
+
+    /**
+     * Csv text of one field value. Null is the empty field, numbers are
+     * written as is and anything else is quoted, with quotes in the value
+     * doubled. Enums are written by name.
+     *
+     * @param e     value
+     * @param quote character
+     *
+     * @return the field text
+     */
     String quoteWhenNeeded( Object e, char quote ) {
         if ( e == null ) {
             return "";
@@ -91,26 +435,255 @@ public class CsvPersitor<K, E> implements DAO<K, E> {
         if ( e instanceof Number ) {
             return e.toString();
         }
-        return quote + e.toString() + quote;
+        String text = e instanceof Enum ? ( (Enum<?>) e ).name() : e.toString();
+        if ( text.indexOf( quote ) >= 0 ) {
+            String q = String.valueOf( quote );
+            text = text.replace( q, q + q );
+        }
+        return quote + text + quote;
+    }
+
+    /**
+     * Replace the storage content by the entities in the file. Each record is
+     * tokenized by a {@link CsvReader} and its fields converted to the entity
+     * field types before construction.
+     *
+     * @param aStorageName file to read
+     * @param loadMode     sequential or parallel
+     *
+     * @throws IOException when the file cannot be read; a partly loaded
+     * storage must not be used, lest a snapshot overwrites the file with it
+     */
+    private void load( String aStorageName, LoadMode loadMode ) throws
+            IOException {
+        Function<String, ?>[] converters = FieldConverters.forFields( mapper
+                .entityFields() );
+        this.storage.clear();
+        if ( loadMode == LoadMode.PARALLEL ) {
+            loadParallel( Path.of( aStorageName ), converters );
+            return;
+        }
+        try ( CsvReader in = new CsvReader( new InputStreamReader( Files
+                .newInputStream( Path.of( aStorageName ) ),
+                StandardCharsets.UTF_8 ) ) ) {
+            readRecords( in, converters );
+        }
+    }
+
+    private void loadParallel( Path file, Function<String, ?>[] converters )
+            throws IOException {
+        try ( FileChannel channel = FileChannel.open( file ) ) {
+            long[] bounds = MappedChunks.boundaries( channel, LOAD_CHUNK_SIZE );
+            List<ForkJoinTask<Void>> chunks = new ArrayList<>();
+            for ( int c = 0; c + 1 < bounds.length; c++ ) {
+                long from = bounds[ c ];
+                long to = bounds[ c + 1 ];
+                if ( from < to ) {
+                    chunks.add( ForkJoinPool.commonPool().submit( () -> {
+                        readRecords( new CsvReader( MappedChunks.decode(
+                                channel, from, to ) ), converters );
+                        return null;
+                    } ) );
+                }
+            }
+            // on a failure the chunks not yet started are cancelled and the
+            // running ones are waited for, so none writes after the clear
+            Throwable failure = null;
+            for ( ForkJoinTask<Void> chunk : chunks ) {
+                chunk.quietlyJoin();
+                if ( null == failure && chunk.isCompletedAbnormally() ) {
+                    failure = chunk.getException();
+                    chunks.forEach( c -> c.cancel( false ) );
+                }
+            }
+            if ( null != failure ) {
+                storage.clear();
+                MappedChunks.rethrow( failure );
+            }
+        }
+    }
+
+    /**
+     * Put all records of the reader in the storage.
+     */
+    private void readRecords( CsvReader in, Function<String, ?>[] converters )
+            throws IOException {
+        String[] fields = new String[ converters.length ];
+        Object[] fieldValues = new Object[ converters.length ];
+        int count;
+        while ( ( count = in.readRecord( fields ) ) >= 0 ) {
+            if ( count != fields.length ) {
+                throw in.error( "expected " + fields.length
+                        + " fields but found " + count );
+            }
+            put( toEntity( fields, 0, converters, fieldValues ) );
+        }
     }
 
-    private void load( String aStorageName ) {
-        Mapper<E> mapper = Mapper.mapperFor( entityType );
-        try ( Stream<String> lines = Files.lines( Path.of( aStorageName ) ) ) {
-            this.storage.clear();
-            lines.map( s-> s.split("\\s*,\\s*"))
-                    .map(mapper::construct)
-                    .;
-//                    lengthmapper::construct )
-                    ;
-        } catch ( FileNotFoundException ex ) {
-            Logger.getLogger( CsvPersitor.class.getName() ).
-                    log( Level.SEVERE, null, ex );
-        } catch ( IOException | ClassNotFoundException ex ) {
-            Logger.getLogger( CsvPersitor.class.getName() ).
-                    log( Level.SEVERE, null, ex );
+    private E toEntity( String[] fields, int first,
+            Function<String, ?>[] converters, Object[] fieldValues ) {
+        for ( int i = 0; i < converters.length; i++ ) {
+            String field = fields[ first + i ];
+            fieldValues[ i ] = null == field ? null
+                    : converters[ i ].apply( field );
         }
+        return mapper.construct( fieldValues );
+    }
 
+    /**
+     * Apply the saves and deletes in the change log to the storage.
+     *
+     * Every record ends with a line break. A crash while appending can leave
+     * a last record without one, or with one inside a quoted field; such a
+     * torn tail is cut off, so that new changes follow the last complete
+     * record. The tail is found on the bytes, before parsing: it is what
+     * follows the last line break outside quotes. Any bad record before it,
+     * the last complete one included, is an error.
+     *
+     * The log is streamed, so its size is not limited by the heap.
+     *
+     * @param log file
+     *
+     * @throws IOException              when the log cannot be read
+     * @throws IllegalArgumentException on a bad complete record
+     */
+    private void replay( Path log ) throws IOException {
+        if ( !Files.exists( log ) ) {
+            return;
+        }
+        Function<String, ?>[] converters = FieldConverters.forFields( mapper
+                .entityFields() );
+        Function<String, ?> keyConverter = FieldConverters.forType( mapper
+                .keyType() );
+        String[] fields = new String[ converters.length + 1 ];
+        Object[] fieldValues = new Object[ converters.length ];
+        long end;
+        long size;
+        try ( FileChannel channel = FileChannel.open( log ) ) {
+            size = channel.size();
+            end = endOfLastRecord( channel );
+            channel.position( 0 );
+            CsvReader in = new CsvReader( new InputStreamReader( prefix(
+                    channel, end ), StandardCharsets.UTF_8 ) );
+            int count;
+            while ( ( count = in.readRecord( fields ) ) >= 0 ) {
+                if ( "S".equals( fields[ 0 ] ) && count == fields.length ) {
+                    put( toEntity( fields, 1, converters, fieldValues ) );
+                } else if ( "D".equals( fields[ 0 ] ) && count == 2 ) {
+                    storage.remove( keyConverter.apply( fields[ 1 ] ) );
+                } else {
+                    throw in.error( "bad change record" );
+                }
+            }
+        }
+        if ( end < size ) {
+            Logger.getLogger( CsvPersitor.class.getName() ).log(
+                    Level.WARNING, "cut torn tail of {0} at byte {1}",
+                    new Object[]{ log, end } );
+            try ( FileChannel channel = FileChannel.open( log, WRITE ) ) {
+                channel.truncate( end );
+            }
+        }
+    }
+
+    /**
+     * Find the offset after the last line break outside quotes. Quotes and
+     * line breaks are single bytes in UTF-8 and never part of a multi byte
+     * character, so the bytes can be scanned without decoding. A doubled
+     * quote in a quoted field toggles twice.
+     */
+    private static long endOfLastRecord( FileChannel channel ) throws
+            IOException {
+        ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 );
+        boolean inQuotes = false;
+        long offset = 0;
+        long end = 0;
+        while ( channel.read( buffer ) > 0 ) {
+            buffer.flip();
+            for ( int i = 0, n = buffer.limit(); i < n; i++ ) {
+                byte b = buffer.get( i );
+                if ( b == '"' ) {
+                    inQuotes = !inQuotes;
+                } else if ( b == '\n' && !inQuotes ) {
+                    end = offset + i + 1;
+                }
+            }
+            offset += buffer.limit();
+            buffer.clear();
+        }
+        return end;
+    }
+
+    /**
+     * The first bytes of the channel, from its current position.
+     */
+    private static InputStream prefix( FileChannel channel, long length ) {
+        return new InputStream() {
+            long left = length;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[ 1 ];
+                return read( one, 0, 1 ) < 0 ? -1 : one[ 0 ] & 0xff;
+            }
+
+            @Override
+            public int read( byte[] b, int off, int len ) throws IOException {
+                if ( left <= 0 ) {
+                    return -1;
+                }
+                int n = channel.read( ByteBuffer.wrap( b, off, (int) Math.min(
+                        len, left ) ) );
+                if ( n > 0 ) {
+                    left -= n;
+                }
+                return n;
+            }
+        };
+    }
+
+    Path logFile() {
+        return Path.of( storageName + ".log" );
+    }
+
+    Path rotatedLogFile() {
+        return Path.of( storageName + ".log.old" );
+    }
+
+    /**
+     * Stop background snapshots, waiting for one that is being written, and
+     * commit and close the change log. The storage stays readable, further
+     * changes fail.
+     */
+    @Override
+    public void close() {
+        try {
+            Runtime.getRuntime().removeShutdownHook( closeOnShutdown );
+        } catch ( IllegalStateException shuttingDown ) {
+            // the hook is running or about to
+        }
+        ScheduledExecutorService executor;
+        synchronized ( this ) {
+            executor = snapshotter;
+        }
+        if ( null != executor ) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination( 1, TimeUnit.MINUTES );
+            } catch ( InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeLog();
+    }
+
+    private void closeLog() {
+        try {
+            changeLog.close();
+        } catch ( IOException ex ) {
+            Logger.getLogger( CsvPersitor.class.getName() )
+                    .log( Level.SEVERE, null, ex );
+        }
     }
 
     /**
@@ -122,6 +695,7 @@ public class CsvPersitor<K, E> implements DAO<K, E> {
         return this.storageName;
     }
 
+    @Override
     public int size() {
         return storage.size();
     }
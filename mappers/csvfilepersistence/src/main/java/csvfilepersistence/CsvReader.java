@@ -0,0 +1,186 @@
+package csvfilepersistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Streaming RFC 4180 tokenizer. Fields are separated by commas and records by
+ * a line break, either LF or CRLF. A field in double quotes may contain
+ * commas, line breaks and quotes, the latter written twice.
+ *
+ * The reader works on its own character buffer and reuses one StringBuilder,
+ * so the only objects created per record are the field strings. An empty
+ * unquoted field is read as null, a quoted empty field as the empty string.
+ * Empty lines are skipped.
+ *
+ * Syntax errors are reported as IllegalArgumentException, with the line
+ * number.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+final class CsvReader implements Closeable {
+
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+    private final StringBuilder text = new StringBuilder();
+
+    CsvReader( Reader in ) {
+        this.in = in;
+        this.buffer = new char[ 8192 ];
+    }
+
+    /**
+     * Read from characters already in memory, without copying them.
+     *
+     * @param text to read, must be backed by an array
+     */
+    CsvReader( CharBuffer text ) {
+        this.in = null;
+        this.buffer = text.array();
+        this.pos = text.arrayOffset() + text.position();
+        this.limit = text.arrayOffset() + text.limit();
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @param fields to receive the field values, reused between records
+     *
+     * @return the number of fields in the record, -1 at the end of the input
+     *
+     * @throws IOException when the underlying reader does
+     * @throws IllegalArgumentException on bad quoting or when the record has
+     * more fields than fit
+     */
+    int readRecord( String[] fields ) throws IOException {
+        int c;
+        while ( ( c = peek() ) == '\r' || c == '\n' ) {
+            endOfLine();
+        }
+        if ( c < 0 ) {
+            return -1;
+        }
+        recordLine = line;
+        int count = 0;
+        while ( true ) {
+            if ( count == fields.length ) {
+                throw syntaxError( "more than " + fields.length + " fields" );
+            }
+            fields[ count++ ] = readField();
+            c = peek();
+            if ( c == SEPARATOR ) {
+                pos++;
+                continue;
+            }
+            if ( c >= 0 ) {
+                endOfLine();
+            }
+            return count;
+        }
+    }
+
+    private String readField() throws IOException {
+        if ( peek() == QUOTE ) {
+            return readQuoted();
+        }
+        text.setLength( 0 );
+        int c;
+        while ( ( c = peek() ) >= 0 && c != SEPARATOR && c != '\r' && c != '\n' ) {
+            if ( c == QUOTE ) {
+                throw syntaxError( "quote in unquoted field" );
+            }
+            text.append( (char) c );
+            pos++;
+        }
+        return text.length() == 0 ? null : text.toString();
+    }
+
+    private String readQuoted() throws IOException {
+        pos++;
+        text.setLength( 0 );
+        while ( true ) {
+            int c = peek();
+            if ( c < 0 ) {
+                throw syntaxError( "unexpected end of input in quoted field" );
+            }
+            pos++;
+            if ( c == QUOTE ) {
+                if ( peek() != QUOTE ) {
+                    break;
+                }
+                pos++;
+            } else if ( c == '\n' ) {
+                line++;
+            }
+            text.append( (char) c );
+        }
+        int c = peek();
+        if ( c >= 0 && c != SEPARATOR && c != '\r' && c != '\n' ) {
+            throw syntaxError( "expected ',' after quoted field but found '"
+                    + (char) c + "'" );
+        }
+        return text.toString();
+    }
+
+    private void endOfLine() throws IOException {
+        if ( peek() == '\r' ) {
+            pos++;
+        }
+        if ( peek() == '\n' ) {
+            pos++;
+        }
+        line++;
+    }
+
+    /**
+     * Report a problem with the record just read.
+     *
+     * @param message what is wrong
+     *
+     * @return the exception to throw, with the first line of the record
+     */
+    IllegalArgumentException error( String message ) {
+        return new IllegalArgumentException( message + " at line "
+                + recordLine );
+    }
+
+    private IllegalArgumentException syntaxError( String message ) {
+        return new IllegalArgumentException( message + " at line " + line );
+    }
+
+    private int peek() throws IOException {
+        if ( pos == limit && !fill() ) {
+            return -1;
+        }
+        return buffer[ pos ];
+    }
+
+    private boolean fill() throws IOException {
+        if ( null == in ) {
+            return false;
+        }
+        int n = in.read( buffer, 0, buffer.length );
+        if ( n <= 0 ) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if ( null != in ) {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package csvfilepersistence;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Conversion of csv field text to the types of the entity fields. The
+ * converters are looked up once per entity type, so a record costs one
+ * conversion per field and no lookups.
+ *
+ * Besides the built-in types, any type with a public static
+ * {@code valueOf(String)} or a public constructor taking a String can be
+ * read.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+final class FieldConverters {
+
+    private static final Map<Class<?>, Function<String, ?>> converters
+            = new HashMap<>();
+
+    static {
+        converters.put( String.class, s -> s );
+        converters.put( Integer.class, Integer::valueOf );
+        converters.put( int.class, Integer::valueOf );
+        converters.put( Long.class, Long::valueOf );
+        converters.put( long.class, Long::valueOf );
+        converters.put( Double.class, Double::valueOf );
+        converters.put( double.class, Double::valueOf );
+        converters.put( Float.class, Float::valueOf );
+        converters.put( float.class, Float::valueOf );
+        converters.put( Short.class, Short::valueOf );
+        converters.put( short.class, Short::valueOf );
+        converters.put( Byte.class, Byte::valueOf );
+        converters.put( byte.class, Byte::valueOf );
+        converters.put( Boolean.class, Boolean::valueOf );
+        converters.put( boolean.class, Boolean::valueOf );
+        converters.put( Character.class, s -> s.charAt( 0 ) );
+        converters.put( char.class, s -> s.charAt( 0 ) );
+        converters.put( BigDecimal.class, BigDecimal::new );
+        converters.put( BigInteger.class, BigInteger::new );
+        converters.put( LocalDate.class, LocalDate::parse );
+        converters.put( LocalDateTime.class, LocalDateTime::parse );
+        converters.put( LocalTime.class, LocalTime::parse );
+        converters.put( Instant.class, Instant::parse );
+        converters.put( UUID.class, UUID::fromString );
+    }
+
+    private FieldConverters() {
+    }
+
+    /**
+     * Get the converters for the fields, in the same order.
+     *
+     * @param fields of the entity, as given by the mapper
+     *
+     * @return the converters
+     *
+     * @throws IllegalArgumentException when a field type cannot be read
+     */
+    @SuppressWarnings( "unchecked" )
+    static Function<String, ?>[] forFields( List<Field> fields ) {
+        return fields.stream()
+                .map( f -> forType( f.getType() ) )
+                .toArray( Function[]::new );
+    }
+
+    /**
+     * Get the converter for one type.
+     *
+     * @param type to convert to
+     *
+     * @return the converter
+     *
+     * @throws IllegalArgumentException when the type cannot be read
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    static Function<String, ?> forType( Class<?> type ) {
+        Function<String, ?> converter = converters.get( type );
+        if ( null != converter ) {
+            return converter;
+        }
+        if ( type.isEnum() ) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return s -> Enum.valueOf( enumType, s );
+        }
+        try {
+            Method valueOf = type.getMethod( "valueOf", String.class );
+            if ( Modifier.isStatic( valueOf.getModifiers() )
+                    && type.isAssignableFrom( valueOf.getReturnType() ) ) {
+                return s -> invoke( () -> valueOf.invoke( null, s ) );
+            }
+        } catch ( NoSuchMethodException ignored ) {
+            // try the constructor
+        }
+        try {
+            Constructor<?> constructor = type.getConstructor( String.class );
+            return s -> invoke( () -> constructor.newInstance( s ) );
+        } catch ( NoSuchMethodException ex ) {
+            throw new IllegalArgumentException( "cannot read a "
+                    + type.getName() + " from csv", ex );
+        }
+    }
+
+    private interface Reflective {
+
+        Object call() throws ReflectiveOperationException;
+    }
+
+    private static Object invoke( Reflective call ) {
+        try {
+            return call.call();
+        } catch ( InvocationTargetException ex ) {
+            Throwable cause = ex.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalArgumentException( cause );
+        } catch ( ReflectiveOperationException ex ) {
+            throw new IllegalArgumentException( ex );
+        }
+    }
+}
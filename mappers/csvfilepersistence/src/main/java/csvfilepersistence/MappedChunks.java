@@ -0,0 +1,173 @@
+package csvfilepersistence;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Splitting of a memory mapped csv file into chunks that start and end on a
+ * record boundary, so the chunks can be parsed independently.
+ *
+ * A line break is a record boundary only outside quotes. Whether a position is
+ * inside quotes depends on the number of quotes before it, so the file is cut
+ * into regions of equal size, the quotes in every region are counted in
+ * parallel, and each chunk then starts at the first line break after its
+ * region start where the total count so far is even. Doubled quotes inside a
+ * quoted field count twice and do not change the outcome.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+final class MappedChunks {
+
+    /**
+     * Size of the windows mapped while looking for the next record start.
+     */
+    static final int RECORD_WINDOW = 1 << 20;
+
+    private MappedChunks() {
+    }
+
+    /**
+     * Find the chunk boundaries of the file.
+     *
+     * @param channel   of the file
+     * @param chunkSize approximate size of a chunk in bytes
+     *
+     * @return the byte offsets of the chunk starts, followed by the file size;
+     * chunk i is [result[i], result[i+1]) and may be empty
+     *
+     * @throws IOException when the channel does
+     */
+    static long[] boundaries( FileChannel channel, int chunkSize ) throws
+            IOException {
+        long size = channel.size();
+        int regions = (int) Math.max( 1, ( size + chunkSize - 1 ) / chunkSize );
+        // the parity of the last region is never needed
+        List<ForkJoinTask<Boolean>> parities = new ArrayList<>( regions );
+        for ( int r = 0; r + 1 < regions; r++ ) {
+            long from = (long) r * chunkSize;
+            long to = Math.min( size, from + chunkSize );
+            parities.add( ForkJoinPool.commonPool().submit( () -> oddQuotes(
+                    map( channel, from, to ) ) ) );
+        }
+        long[] result = new long[ regions + 1 ];
+        boolean inQuotes = false;
+        for ( int r = 1; r < regions; r++ ) {
+            inQuotes ^= join( parities.get( r - 1 ) );
+            long start = (long) r * chunkSize;
+            // a record longer than a region leaves the previous chunk empty
+            result[ r ] = result[ r - 1 ] >= start ? result[ r - 1 ]
+                    : nextRecord( channel, start, size, inQuotes );
+        }
+        result[ regions ] = size;
+        return result;
+    }
+
+    /**
+     * Decode a chunk of the file.
+     *
+     * @param channel of the file
+     * @param from    first byte
+     * @param to      byte after the last
+     *
+     * @return the characters, backed by an array
+     *
+     * @throws IOException when the channel does
+     */
+    static CharBuffer decode( FileChannel channel, long from, long to ) throws
+            IOException {
+        return StandardCharsets.UTF_8.decode( map( channel, from, to ) );
+    }
+
+    /**
+     * Wait for a task and return its result.
+     *
+     * @param task to wait for
+     *
+     * @return the result
+     *
+     * @throws IOException when the task failed with one
+     */
+    static <T> T join( ForkJoinTask<T> task ) throws IOException {
+        task.quietlyJoin();
+        if ( task.isCompletedAbnormally() ) {
+            rethrow( task.getException() );
+        }
+        return task.getRawResult();
+    }
+
+    /**
+     * Throw the failure of a task. The pool wraps checked exceptions of a
+     * callable, an IOException is unwrapped so the caller can report it as
+     * such. The pool may also hand out a copy of an exception thrown in
+     * another thread, with the original as cause; the original is thrown.
+     *
+     * @param failure of the task
+     *
+     * @throws IOException when failure is or wraps one
+     */
+    static void rethrow( Throwable failure ) throws IOException {
+        Throwable cause = failure.getCause();
+        if ( null != cause && cause.getClass() == failure.getClass() ) {
+            failure = cause;
+        }
+        for ( Throwable t = failure; t != null; t = t.getCause() ) {
+            if ( t instanceof IOException ) {
+                throw (IOException) t;
+            }
+        }
+        if ( failure instanceof Error ) {
+            throw (Error) failure;
+        }
+        throw (RuntimeException) failure;
+    }
+
+    private static MappedByteBuffer map( FileChannel channel, long from,
+            long to ) throws IOException {
+        return channel.map( FileChannel.MapMode.READ_ONLY, from, to - from );
+    }
+
+    private static boolean oddQuotes( MappedByteBuffer region ) {
+        boolean odd = false;
+        for ( int i = 0, n = region.limit(); i < n; i++ ) {
+            if ( region.get( i ) == '"' ) {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    /**
+     * Find the start of the first record at or after a position. The file is
+     * mapped in windows of {@link #RECORD_WINDOW} bytes, as many as the record
+     * needs.
+     *
+     * @param inQuotes whether position start is inside quotes
+     *
+     * @return the offset after the first line break outside quotes, or size
+     */
+    private static long nextRecord( FileChannel channel, long start, long size,
+            boolean inQuotes ) throws IOException {
+        long from = start;
+        while ( from < size ) {
+            long to = Math.min( size, from + RECORD_WINDOW );
+            MappedByteBuffer window = map( channel, from, to );
+            for ( int i = 0, n = window.limit(); i < n; i++ ) {
+                byte b = window.get( i );
+                if ( b == '"' ) {
+                    inQuotes = !inQuotes;
+                } else if ( b == '\n' && !inQuotes ) {
+                    return from + i + 1;
+                }
+            }
+            from = to;
+        }
+        return size;
+    }
+}
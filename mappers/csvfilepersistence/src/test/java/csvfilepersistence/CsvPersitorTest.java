@@ -0,0 +1,452 @@
+package csvfilepersistence;
+
+import genericmapper.Mapper;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.APPEND;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.IntStream;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import nl.fontys.sebivenlo.sebiannotations.ID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.api.io.TempDir;
+import testentities.Product;
+
+/**
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+public class CsvPersitorTest {
+
+    @TempDir
+    Path dir;
+
+    CsvPersitor<Integer, Product> dao;
+
+    static final LocalDate since = LocalDate.of( 2021, 3, 14 );
+    static final Product nut = new Product( 1, "nut", 100, since );
+    static final Product bolt = new Product( 2, "bolt", 50, since );
+
+    final List<CsvPersitor<Integer, Product>> opened = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        dao = open( "products.csv", CsvPersitor.LoadMode.SEQUENTIAL );
+    }
+
+    @AfterEach
+    void closeAll() {
+        opened.forEach( CsvPersitor::close );
+    }
+
+    CsvPersitor<Integer, Product> open( String name,
+            CsvPersitor.LoadMode loadMode ) {
+        CsvPersitor<Integer, Product> result = new CsvPersitor<>( dir.resolve(
+                name ).toString(), Product.class, loadMode );
+        opened.add( result );
+        return result;
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tSaveAndGet() {
+        dao.save( nut );
+        dao.save( bolt );
+        assertThat( dao.size() ).isEqualTo( 2 );
+        assertThat( dao.get( 1 ) ).isSameAs( nut );
+        assertThat( dao.get( 3 ) ).isNull();
+//        fail( "method SaveAndGet completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tSaveReplaces() {
+        dao.save( nut );
+        Product moreNuts = new Product( 1, "nut", 200, since );
+        dao.save( moreNuts );
+        assertThat( dao.size() ).isEqualTo( 1 );
+        assertThat( dao.get( 1 ) ).isSameAs( moreNuts );
+//        fail( "method SaveReplaces completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tDelete() {
+        dao.save( nut );
+        dao.save( bolt );
+        dao.delete( 1 );
+        dao.delete( 42 );
+        assertThat( dao.get( 1 ) ).isNull();
+        assertThat( dao.getAll() ).containsExactly( bolt );
+//        fail( "method Delete completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tGetAllIsSnapshot() {
+        dao.save( nut );
+        List<Product> all = dao.getAll();
+        dao.save( bolt );
+        assertThat( all ).containsExactly( nut );
+        assertThatThrownBy( () -> all.add( bolt ) )
+                .isInstanceOf( UnsupportedOperationException.class );
+//        fail( "method GetAllIsSnapshot completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tEntityWithoutKey() {
+        assertThatThrownBy( () -> dao.save( new Product( null, "none", 0,
+                since ) ) ).isInstanceOf( IllegalArgumentException.class );
+//        fail( "method EntityWithoutKey completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tConcurrentSaves() {
+        IntStream.range( 0, 10_000 ).parallel()
+                .forEach( i -> dao.save( new Product( i, "p" + i, i, since ) ) );
+        assertThat( dao.size() ).isEqualTo( 10_000 );
+        assertThat( dao.get( 4321 ).getStock() ).isEqualTo( 4321 );
+//        fail( "method ConcurrentSaves completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @ParameterizedTest
+    @CsvSource( value = {
+        "plain#'1,\"plain\",7,\"2021-03-14\"'",
+        "'with, comma'#'1,\"with, comma\",7,\"2021-03-14\"'",
+        "say \"hi\"#'1,\"say \"\"hi\"\"\",7,\"2021-03-14\"'",
+        "''#'1,\"\",7,\"2021-03-14\"'", }, delimiter = '#' )
+    void tQuoting( String name, String expected ) {
+        assertThat( dao.entityToString( new Product( 1, name, 7, since ) ) )
+                .isEqualTo( expected );
+//        fail( "method Quoting completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tLoadConvertsFieldTypes() throws IOException {
+        List<Product> products = List.of( nut,
+                new Product( 3, "with, comma and \"quotes\"", 0, since ),
+                new Product( 4, "two\nlines", -1, null ),
+                new Product( 5, "", 1, since ) );
+        Path file = dir.resolve( "load.csv" );
+        Files.write( file, products.stream()
+                .map( dao::entityToString )
+                .collect( toList() ), StandardCharsets.UTF_8 );
+
+        CsvPersitor<Integer, Product> loaded = open( "load.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+
+        assertThat( loaded.size() ).isEqualTo( 4 );
+        for ( Product p : products ) {
+            assertThat( loaded.get( p.getProductId() ) )
+                    .usingRecursiveComparison().isEqualTo( p );
+        }
+//        fail( "method LoadConvertsFieldTypes completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tParallelLoadEqualsSequential() throws IOException {
+        List<Product> products = IntStream.range( 0, 500 )
+                .mapToObj( i -> new Product( i, i % 7 == 0 ? "multi\nline, \"" + i
+                + "\"" : "p" + i, i, i % 3 == 0 ? null : since ) )
+                .collect( toList() );
+        Path file = dir.resolve( "parallel.csv" );
+        Files.write( file, products.stream()
+                .map( dao::entityToString )
+                .collect( toList() ), StandardCharsets.UTF_8 );
+
+        CsvPersitor<Integer, Product> loaded = open( "parallel.csv",
+                CsvPersitor.LoadMode.PARALLEL );
+
+        assertThat( loaded.size() ).isEqualTo( products.size() );
+        for ( Product p : products ) {
+            assertThat( loaded.get( p.getProductId() ) )
+                    .usingRecursiveComparison().isEqualTo( p );
+        }
+//        fail( "method ParallelLoadEqualsSequential completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tChangesSurviveRestart() {
+        dao.save( nut );
+        dao.save( bolt );
+        dao.save( new Product( 3, "washer", 5, since ) );
+        dao.delete( 2 );
+        dao.save( new Product( 1, "nut", 99, since ) );
+        dao.close();
+
+        CsvPersitor<Integer, Product> restarted = open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+
+        assertThat( restarted.size() ).isEqualTo( 2 );
+        assertThat( restarted.get( 1 ).getStock() ).isEqualTo( 99 );
+        assertThat( restarted.get( 2 ) ).isNull();
+        assertThat( Files.exists( dir.resolve( "products.csv" ) ) ).isFalse();
+//        fail( "method ChangesSurviveRestart completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tTornTailIsCut() throws IOException {
+        dao.save( nut );
+        dao.close();
+        Path log = dao.logFile();
+        long complete = Files.size( log );
+        Files.writeString( log, "S,2,\"bo", StandardCharsets.UTF_8, APPEND );
+
+        CsvPersitor<Integer, Product> restarted = open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+
+        assertThat( restarted.getAll() ).hasSize( 1 );
+        assertThat( Files.size( log ) ).isEqualTo( complete );
+        restarted.save( bolt );
+        restarted.close();
+        assertThat( open( "products.csv", CsvPersitor.LoadMode.SEQUENTIAL )
+                .size() ).isEqualTo( 2 );
+//        fail( "method TornTailIsCut completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tTornQuotedTailIsCut() throws IOException {
+        dao.save( nut );
+        dao.close();
+        Path log = dao.logFile();
+        long complete = Files.size( log );
+        Files.writeString( log, "S,2,\"two\nli", StandardCharsets.UTF_8,
+                APPEND );
+
+        CsvPersitor<Integer, Product> restarted = open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+
+        assertThat( restarted.getAll() ).hasSize( 1 );
+        assertThat( Files.size( log ) ).isEqualTo( complete );
+//        fail( "method TornQuotedTailIsCut completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tBadLastCompleteRecordFails() throws IOException {
+        dao.save( nut );
+        dao.close();
+        Path log = dao.logFile();
+        Files.writeString( log, "S,2,\"bolt\",many,\n", StandardCharsets.UTF_8,
+                APPEND );
+        long size = Files.size( log );
+
+        assertThatThrownBy( () -> open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL ) )
+                .isInstanceOf( IllegalArgumentException.class );
+        assertThat( Files.size( log ) ).isEqualTo( size );
+//        fail( "method BadLastCompleteRecordFails completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tBadRecordBeforeTailFails() throws IOException {
+        dao.close();
+        Files.writeString( dao.logFile(), "X,1\nS,1,\"nut\",100,\n",
+                StandardCharsets.UTF_8 );
+        assertThatThrownBy( () -> open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "line 1" );
+//        fail( "method BadRecordBeforeTailFails completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tConcurrentChangesAreLogged() {
+        IntStream.range( 0, 2_000 ).parallel().forEach( i -> {
+            dao.save( new Product( i, "p" + i, i, since ) );
+            if ( i % 2 == 1 ) {
+                dao.delete( i );
+            }
+        } );
+        dao.close();
+        CsvPersitor<Integer, Product> restarted = open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+        assertThat( restarted.size() ).isEqualTo( 1_000 );
+        assertThat( restarted.getAll() ).allMatch( p -> p.getStock() % 2 == 0 );
+//        fail( "method ConcurrentChangesAreLogged completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tSnapshotEmptiesLog() throws IOException {
+        dao.save( nut );
+        dao.save( bolt );
+        dao.snapshot();
+        assertThat( dir.resolve( "products.csv" ) ).exists();
+        assertThat( Files.size( dao.logFile() ) ).isZero();
+        assertThat( dao.rotatedLogFile() ).doesNotExist();
+
+        dao.delete( 1 );
+        dao.close();
+        CsvPersitor<Integer, Product> restarted = open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+        assertThat( restarted.getAll() ).hasSize( 1 );
+        assertThat( restarted.get( 2 ) ).usingRecursiveComparison()
+                .isEqualTo( bolt );
+//        fail( "method SnapshotEmptiesLog completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tSnapshotWhileSaving() throws InterruptedException {
+        Thread saver = new Thread( () -> IntStream.range( 0, 5_000 )
+                .forEach( i -> {
+                    dao.save( new Product( i % 500, "p" + i, i, since ) );
+                    if ( i % 3 == 0 ) {
+                        dao.delete( ( i * 7 ) % 500 );
+                    }
+                } ) );
+        saver.start();
+        while ( saver.isAlive() ) {
+            dao.snapshot();
+        }
+        saver.join();
+        List<Product> before = dao.getAll();
+        dao.close();
+
+        CsvPersitor<Integer, Product> restarted = open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+        assertThat( restarted.getAll() )
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf( before );
+//        fail( "method SnapshotWhileSaving completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tSnapshotWhenLogExceeds() throws IOException {
+        dao.snapshotWhenLogExceeds( 4_000 );
+        for ( int i = 0; i < 1_000; i++ ) {
+            dao.save( new Product( i, "p" + i, i, since ) );
+        }
+        dao.close();
+        assertThat( dir.resolve( "products.csv" ) ).exists();
+        assertThat( Files.readAllLines( dao.logFile() ) ).hasSizeLessThan( 1_000 );
+        assertThat( open( "products.csv", CsvPersitor.LoadMode.SEQUENTIAL )
+                .size() ).isEqualTo( 1_000 );
+//        fail( "method SnapshotWhenLogExceeds completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tPeriodicSnapshot() throws InterruptedException {
+        dao.snapshotEvery( Duration.ofMillis( 20 ) );
+        dao.save( nut );
+        Thread.sleep( 200 );
+        assertThat( dir.resolve( "products.csv" ) ).exists();
+//        fail( "method PeriodicSnapshot completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tRotatedLogIsReplayed() throws IOException {
+        dao.close();
+        Files.writeString( dao.rotatedLogFile(),
+                "S,1,\"nut\",1,\nS,2,\"bolt\",2,\n", StandardCharsets.UTF_8 );
+        Files.writeString( dao.logFile(), "D,2\nS,3,\"washer\",3,\n",
+                StandardCharsets.UTF_8 );
+
+        CsvPersitor<Integer, Product> restarted = open( "products.csv",
+                CsvPersitor.LoadMode.SEQUENTIAL );
+        assertThat( restarted.size() ).isEqualTo( 2 );
+        assertThat( restarted.get( 2 ) ).isNull();
+
+        restarted.snapshot();
+        assertThat( restarted.rotatedLogFile() ).doesNotExist();
+//        fail( "method RotatedLogIsReplayed completed succesfully; you know what to do" );
+    }
+
+    /**
+     * Class path for a child jvm: the locations of the given classes, then
+     * the class path of this jvm, which a test launcher may have replaced by
+     * its own jar.
+     */
+    static String classPath( Class<?>... classes ) throws URISyntaxException {
+        Set<String> elements = new LinkedHashSet<>();
+        for ( Class<?> c : classes ) {
+            elements.add( Path.of( c.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI() ).toString() );
+        }
+        elements.add( System.getProperty( "java.class.path" ) );
+        return String.join( File.pathSeparator, elements );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tAcknowledgedSavesSurviveKillDuringSnapshots() throws Exception {
+        String storage = dir.resolve( "killed.csv" ).toString();
+        Process process = new ProcessBuilder( Path.of( System.getProperty(
+                "java.home" ), "bin", "java" ).toString(), "-cp",
+                classPath( SavingProcess.class, CsvPersitor.class,
+                        Mapper.class, ID.class ),
+                SavingProcess.class.getName(), storage )
+                .redirectError( ProcessBuilder.Redirect.DISCARD ).start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Thread reader = new Thread( () -> {
+            try {
+                process.getInputStream().transferTo( out );
+            } catch ( IOException killed ) {
+                // the pipe may break when the process is killed
+            }
+        } );
+        reader.start();
+        while ( out.size() < 200_000 && process.isAlive() ) {
+            Thread.sleep( 10 );
+        }
+        process.destroyForcibly().waitFor();
+        reader.join();
+
+        // only lines with their line break were printed completely
+        String printed = out.toString( StandardCharsets.UTF_8 );
+        List<Integer> acknowledged = printed.substring( 0, printed
+                .lastIndexOf( '\n' ) + 1 ).lines()
+                .map( Integer::valueOf ).collect( toList() );
+        CsvPersitor<Integer, Product> restarted = new CsvPersitor<>( storage,
+                Product.class );
+        opened.add( restarted );
+        assertThat( acknowledged ).isNotEmpty();
+        assertThat( acknowledged ).allSatisfy( id -> assertThat( restarted
+                .get( id ) ).as( "acknowledged save %d", id ).isNotNull() );
+//        fail( "method AcknowledgedSavesSurviveKillDuringSnapshots completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @ParameterizedTest
+    @EnumSource( CsvPersitor.LoadMode.class )
+    void tUnreadableStorageFails( CsvPersitor.LoadMode mode ) throws
+            IOException {
+        Files.createDirectory( dir.resolve( "unreadable.csv" ) );
+        assertThatThrownBy( () -> open( "unreadable.csv", mode ) )
+                .isInstanceOf( UncheckedIOException.class );
+//        fail( "method UnreadableStorageFails completed succesfully; you know what to do" );
+    }
+}
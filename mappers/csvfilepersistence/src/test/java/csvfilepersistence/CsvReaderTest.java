@@ -0,0 +1,81 @@
+package csvfilepersistence;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+public class CsvReaderTest {
+
+    /**
+     * Read the first record and show it with '|' between the fields and
+     * {@code <null>} for null fields.
+     */
+    static String firstRecord( String csv ) throws IOException {
+        CsvReader in = new CsvReader( new StringReader( csv ) );
+        String[] fields = new String[ 4 ];
+        int count = in.readRecord( fields );
+        return String.join( "|", Arrays.stream( fields, 0, count )
+                .map( f -> null == f ? "<null>" : f )
+                .toArray( String[]::new ) );
+    }
+
+    //@Disabled("Think TDD")
+    @ParameterizedTest
+    @CsvSource( value = {
+        "a,b,c#a|b|c",
+        "1,,3#1|<null>|3",
+        "\"\",x#|x",
+        "\"a,b\",c#a,b|c",
+        "\"say \"\"hi\"\"\"#say \"hi\"",
+        "' a ,b'#' a |b'", }, delimiter = '#' )
+    void tFields( String csv, String expected ) throws IOException {
+        assertThat( firstRecord( csv ) ).isEqualTo( expected );
+//        fail( "method Fields completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tCrLfEndsRecord() throws IOException {
+        assertThat( firstRecord( "a,b\r\nc" ) ).isEqualTo( "a|b" );
+//        fail( "method CrLfEndsRecord completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tRecords() throws IOException {
+        CsvReader in = new CsvReader( new StringReader(
+                "1,\"two\nlines\"\r\n\n3,x\n" ) );
+        String[] fields = new String[ 2 ];
+        assertThat( in.readRecord( fields ) ).isEqualTo( 2 );
+        assertThat( fields ).containsExactly( "1", "two\nlines" );
+        assertThat( in.readRecord( fields ) ).isEqualTo( 2 );
+        assertThat( fields ).containsExactly( "3", "x" );
+        assertThat( in.readRecord( fields ) ).isEqualTo( -1 );
+//        fail( "method Records completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @ParameterizedTest
+    @CsvSource( value = {
+        "\"open#end of input",
+        "\"a\"b#expected ','",
+        "a\"b#quote in unquoted",
+        "1,2,3,4,5#more than 4 fields", }, delimiter = '#' )
+    void tMalformed( String csv, String message ) {
+        assertThatThrownBy( () -> firstRecord( csv ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( message )
+                .hasMessageContaining( "line 1" );
+//        fail( "method Malformed completed succesfully; you know what to do" );
+    }
+}
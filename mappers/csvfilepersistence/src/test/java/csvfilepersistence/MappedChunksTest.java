@@ -0,0 +1,106 @@
+package csvfilepersistence;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+public class MappedChunksTest {
+
+    @TempDir
+    Path dir;
+
+    static final String csv = "1,\"a\"\n"
+            + "2,\"multi\nline, \"\"quoted\"\"\nrecord\"\r\n"
+            + "3,\n"
+            + "4,\"\"\n"
+            + "5,\"x\"\"\n\"\"y\"\n";
+
+    static List<String> records( CsvReader in ) throws IOException {
+        List<String> result = new ArrayList<>();
+        String[] fields = new String[ 2 ];
+        int count;
+        while ( ( count = in.readRecord( fields ) ) >= 0 ) {
+            result.add( Arrays.toString( Arrays.copyOf( fields, count ) ) );
+        }
+        return result;
+    }
+
+    //@Disabled("Think TDD")
+    @ParameterizedTest
+    @ValueSource( ints = { 1, 2, 3, 5, 8, 13, 1 << 20 } )
+    void tChunksEndOnRecords( int chunkSize ) throws IOException {
+        Path file = dir.resolve( "chunks.csv" );
+        Files.writeString( file, csv, StandardCharsets.UTF_8 );
+        List<String> chunked = new ArrayList<>();
+        try ( FileChannel channel = FileChannel.open( file ) ) {
+            long[] bounds = MappedChunks.boundaries( channel, chunkSize );
+            assertThat( bounds ).isSorted().startsWith( 0 )
+                    .endsWith( channel.size() );
+            for ( int c = 0; c + 1 < bounds.length; c++ ) {
+                chunked.addAll( records( new CsvReader( MappedChunks.decode(
+                        channel, bounds[ c ], bounds[ c + 1 ] ) ) ) );
+            }
+        }
+        assertThat( chunked ).hasSize( 5 )
+                .isEqualTo( records( new CsvReader( new StringReader( csv ) ) ) );
+//        fail( "method ChunksEndOnRecords completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tEmptyFile() throws IOException {
+        Path file = Files.createFile( dir.resolve( "empty.csv" ) );
+        try ( FileChannel channel = FileChannel.open( file ) ) {
+            assertThat( MappedChunks.boundaries( channel, 8 ) )
+                    .containsExactly( 0, 0 );
+        }
+//        fail( "method EmptyFile completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tRecordLongerThanWindow() throws IOException {
+        String longField = "x\n".repeat( MappedChunks.RECORD_WINDOW );
+        String text = "1,\"" + longField + "\"\n2,\"b\"\n";
+        Path file = dir.resolve( "long.csv" );
+        Files.writeString( file, text, StandardCharsets.UTF_8 );
+        try ( FileChannel channel = FileChannel.open( file ) ) {
+            long[] bounds = MappedChunks.boundaries( channel, 1 << 10 );
+            assertThat( bounds ).isSorted()
+                    .contains( (long) text.indexOf( "2," ) )
+                    .endsWith( channel.size() );
+        }
+//        fail( "method RecordLongerThanWindow completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tJoinUnwrapsIOException() {
+        ForkJoinTask<Void> task = ForkJoinPool.commonPool().submit( () -> {
+            throw new IOException( "disk gone" );
+        } );
+        assertThatThrownBy( () -> MappedChunks.join( task ) )
+                .isInstanceOf( IOException.class )
+                .hasMessage( "disk gone" );
+//        fail( "method JoinUnwrapsIOException completed succesfully; you know what to do" );
+    }
+}
@@ -0,0 +1,40 @@
+package csvfilepersistence;
+
+import java.time.LocalDate;
+import testentities.Product;
+
+/**
+ * Program that saves products from a few threads while another thread takes
+ * snapshots, until it is killed. The key of every save is printed once the
+ * save has returned, so the killer knows which saves were acknowledged.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+public class SavingProcess {
+
+    static final int SAVERS = 4;
+
+    /**
+     * Run until killed.
+     *
+     * @param args the storage name
+     */
+    public static void main( String[] args ) {
+        CsvPersitor<Integer, Product> dao = new CsvPersitor<>( args[ 0 ],
+                Product.class, CsvPersitor.LoadMode.SEQUENTIAL,
+                CsvPersitor.SyncPolicy.NEVER );
+        LocalDate since = LocalDate.of( 2021, 3, 14 );
+        for ( int s = 0; s < SAVERS; s++ ) {
+            int saver = s;
+            new Thread( () -> {
+                for ( int i = saver;; i += SAVERS ) {
+                    dao.save( new Product( i, "p" + i, i, since ) );
+                    System.out.println( i );
+                }
+            } ).start();
+        }
+        while ( true ) {
+            dao.snapshot();
+        }
+    }
+}
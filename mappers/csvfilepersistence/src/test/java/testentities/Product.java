@@ -0,0 +1,47 @@
+package testentities;
+
+import java.time.LocalDate;
+import nl.fontys.sebivenlo.sebiannotations.ID;
+
+/**
+ * Simple entity with an integer key.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+public class Product {
+
+    @ID
+    final Integer productId;
+    final String name;
+    final int stock;
+    final LocalDate since;
+
+    public Product( Integer productId, String name, int stock, LocalDate since ) {
+        this.productId = productId;
+        this.name = name;
+        this.stock = stock;
+        this.since = since;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public LocalDate getSince() {
+        return since;
+    }
+
+    @Override
+    public String toString() {
+        return "Product{" + "productId=" + productId + ", name=" + name
+                + ", stock=" + stock + ", since=" + since + '}';
+    }
+}
@@ -105,6 +105,20 @@ public enum Constants {
         return GetterNamingStrategy.valueOf( namingStrategy.toUpperCase() ).apply( f );
     }
 
+    /**
+     * Compute the name of the index constant for a field. Camel case is split
+     * with underscores and the result is upper case, so firstName becomes
+     * FIRST_NAME and student_class becomes STUDENT_CLASS.
+     *
+     * @param f field
+     *
+     * @return the constant name.
+     */
+    public static String constantName(Field f) {
+        return f.getName().replaceAll( "([a-z0-9])([A-Z])", "$1_$2" )
+                .toUpperCase();
+    }
+
     /**
      * Helper to check for non normal fields.
      *
@@ -2,20 +2,21 @@ package genericmapper;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -23,7 +24,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static java.util.stream.Collectors.toUnmodifiableSet;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import nl.fontys.sebivenlo.sebiannotations.Generated;
@@ -49,9 +51,9 @@ public abstract class Mapper< E, K> {
     protected final Field[] transientFields;
     protected final Map<String, Integer> nameToFieldIndex;
     private final MethodHandles.Lookup lookup;
-    private Set<String> generatedFields = null;
-
-    private Constructor<E> declaredConstructor;
+    private final Set<String> generatedFields;
+    private final int[] nonGeneratedIndices;
+    private final String idName;
     protected final Function<Object[], E> allFieldsConstructor;
 
     /**
@@ -83,6 +85,22 @@ public abstract class Mapper< E, K> {
         allFieldsConstructor = findConstructor( entityFields );
         nameToFieldIndex = nameToFieldIndex();
         transientFields = transientFields( this.entityType );
+        boolean[] generatedMask = new boolean[ entityFields.length ];
+        for ( int i = 0; i < entityFields.length; i++ ) {
+            generatedMask[ i ] = isGenerated( entityFields[ i ] );
+        }
+        nonGeneratedIndices = IntStream.range( 0, entityFields.length )
+                .filter( i -> !generatedMask[ i ] )
+                .toArray();
+        generatedFields = IntStream.range( 0, entityFields.length )
+                .filter( i -> generatedMask[ i ] )
+                .mapToObj( i -> entityFields[ i ].getName() )
+                .collect( toUnmodifiableSet() );
+        idName = Stream.of( entityFields )
+                .filter( f -> f.getAnnotation( ID.class ) != null )
+                .findFirst()
+                .map( f -> f.getName() )
+                .orElse( "id" );
     }
 
     /**
@@ -128,6 +146,257 @@ public abstract class Mapper< E, K> {
      */
     public abstract Object[] deconstruct(E entity);
 
+    /**
+     * Deconstruct the entity into a caller supplied array, so that bulk
+     * operations can reuse one buffer for all entities. The buffer must be at
+     * least {@link #getArraySize()} long, the values are stored in the same
+     * order as {@link #deconstruct(java.lang.Object) }.
+     *
+     * This default copies the result of deconstruct. Generated mappers
+     * override it and write the field values straight into the buffer.
+     *
+     * @param entity to deconstruct
+     * @param buffer to receive the field values
+     *
+     * @return the buffer
+     */
+    public Object[] deconstructInto(E entity, Object[] buffer) {
+        Object[] fieldValues = deconstruct( entity );
+        System.arraycopy( fieldValues, 0, buffer, 0, fieldValues.length );
+        return buffer;
+    }
+
+    /**
+     * Get the int value of the field at index idx without boxing. Generated
+     * mappers override this method for their primitive int fields. This
+     * default takes the value from {@link #deconstruct(java.lang.Object) }, so
+     * it boxes and also serves Integer fields, for which a null value throws a
+     * NullPointerException.
+     *
+     * @param entity to read
+     * @param idx of the field, as in the deconstructed array
+     *
+     * @return the value
+     * @throws NullPointerException when the field holds a null wrapper
+     */
+    public int getInt(E entity, int idx) {
+        return ( (Number) deconstruct( entity )[ idx ] ).intValue();
+    }
+
+    /**
+     * Get the long value of the field at index idx without boxing.
+     *
+     * @param entity to read
+     * @param idx of the field, as in the deconstructed array
+     *
+     * @return the value
+     * @see #getInt(java.lang.Object, int)
+     */
+    public long getLong(E entity, int idx) {
+        return ( (Number) deconstruct( entity )[ idx ] ).longValue();
+    }
+
+    /**
+     * Get the double value of the field at index idx without boxing.
+     *
+     * @param entity to read
+     * @param idx of the field, as in the deconstructed array
+     *
+     * @return the value
+     * @see #getInt(java.lang.Object, int)
+     */
+    public double getDouble(E entity, int idx) {
+        return ( (Number) deconstruct( entity )[ idx ] ).doubleValue();
+    }
+
+    /**
+     * Get the boolean value of the field at index idx without boxing.
+     *
+     * @param entity to read
+     * @param idx of the field, as in the deconstructed array
+     *
+     * @return the value
+     * @see #getInt(java.lang.Object, int)
+     */
+    public boolean getBoolean(E entity, int idx) {
+        return (Boolean) deconstruct( entity )[ idx ];
+    }
+
+    /**
+     * Create a builder that collects field values by index and constructs an
+     * entity with this mapper.
+     *
+     * @return a fresh builder
+     */
+    public Builder<E> builder() {
+        return new Builder<>( this );
+    }
+
+    /**
+     * Construct an entity from the values collected in a builder. This default
+     * boxes the primitive values and uses
+     * {@link #construct(java.lang.Object[]) }. Generated mappers override it
+     * and pass the primitive slots of the builder straight to the constructor.
+     *
+     * @param builder holding the field values
+     *
+     * @return the entity
+     */
+    public E construct(Builder<E> builder) {
+        return construct( builder.boxedValues() );
+    }
+
+    /**
+     * Collects the field values for one entity by field index. Primitive
+     * fields are kept in a {@code long[]} slot per field, with double and
+     * float stored as their raw bits, so the typed setters and the generated
+     * {@link Mapper#construct(genericmapper.Mapper.Builder) } do not box.
+     * Reference fields, wrappers included, are set with
+     * {@link #set(int, java.lang.Object) }.
+     *
+     * A builder can be reused, the values stay set after build.
+     *
+     * @param <E> entity type
+     */
+    public static final class Builder<E> {
+
+        private final Mapper<E, ?> mapper;
+        private final Class<?>[] fieldTypes;
+        private final Object[] references;
+        private final long[] primitives;
+
+        Builder(Mapper<E, ?> mapper) {
+            this.mapper = mapper;
+            this.fieldTypes = Stream.of( mapper.entityFields )
+                    .map( Field::getType ).toArray( Class<?>[]::new );
+            this.references = new Object[ fieldTypes.length ];
+            this.primitives = new long[ fieldTypes.length ];
+        }
+
+        /**
+         * Set the value of any field. A value for a primitive field is unboxed
+         * into its slot.
+         *
+         * @param idx of the field
+         * @param value to set
+         *
+         * @return this builder
+         */
+        public Builder<E> set(int idx, Object value) {
+            Class<?> type = fieldTypes[ idx ];
+            if ( !type.isPrimitive() ) {
+                references[ idx ] = value;
+            } else if ( type == boolean.class ) {
+                primitives[ idx ] = (Boolean) value ? 1L : 0L;
+            } else if ( type == char.class ) {
+                primitives[ idx ] = (Character) value;
+            } else if ( type == double.class || type == float.class ) {
+                primitives[ idx ] = Double.doubleToRawLongBits(
+                        ( (Number) value ).doubleValue() );
+            } else {
+                primitives[ idx ] = ( (Number) value ).longValue();
+            }
+            return this;
+        }
+
+        public Builder<E> setInt(int idx, int value) {
+            primitives[ checkType( idx, int.class ) ] = value;
+            return this;
+        }
+
+        public Builder<E> setLong(int idx, long value) {
+            primitives[ checkType( idx, long.class ) ] = value;
+            return this;
+        }
+
+        public Builder<E> setDouble(int idx, double value) {
+            primitives[ checkType( idx, double.class ) ] = Double
+                    .doubleToRawLongBits( value );
+            return this;
+        }
+
+        public Builder<E> setBoolean(int idx, boolean value) {
+            primitives[ checkType( idx, boolean.class ) ] = value ? 1L : 0L;
+            return this;
+        }
+
+        private int checkType(int idx, Class<?> expected) {
+            if ( fieldTypes[ idx ] != expected ) {
+                throw new IllegalArgumentException( "field " + idx + " is a "
+                        + fieldTypes[ idx ].getName() + ", not a "
+                        + expected.getName() );
+            }
+            return idx;
+        }
+
+        /**
+         * Value of a reference field, for generated mappers.
+         *
+         * @param idx of the field
+         * @return the value
+         */
+        public Object value(int idx) {
+            return references[ idx ];
+        }
+
+        /**
+         * Slot of an integral, char or boolean field, for generated mappers.
+         *
+         * @param idx of the field
+         * @return the value, 1 or 0 for a boolean
+         */
+        public long longValue(int idx) {
+            return primitives[ idx ];
+        }
+
+        /**
+         * Slot of a double or float field, for generated mappers.
+         *
+         * @param idx of the field
+         * @return the value
+         */
+        public double doubleValue(int idx) {
+            return Double.longBitsToDouble( primitives[ idx ] );
+        }
+
+        Object[] boxedValues() {
+            Object[] result = new Object[ fieldTypes.length ];
+            for ( int i = 0; i < result.length; i++ ) {
+                Class<?> type = fieldTypes[ i ];
+                long slot = primitives[ i ];
+                if ( !type.isPrimitive() ) {
+                    result[ i ] = references[ i ];
+                } else if ( type == int.class ) {
+                    result[ i ] = (int) slot;
+                } else if ( type == long.class ) {
+                    result[ i ] = slot;
+                } else if ( type == double.class ) {
+                    result[ i ] = doubleValue( i );
+                } else if ( type == float.class ) {
+                    result[ i ] = (float) doubleValue( i );
+                } else if ( type == boolean.class ) {
+                    result[ i ] = slot != 0;
+                } else if ( type == char.class ) {
+                    result[ i ] = (char) slot;
+                } else if ( type == short.class ) {
+                    result[ i ] = (short) slot;
+                } else {
+                    result[ i ] = (byte) slot;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Construct the entity from the values set so far.
+         *
+         * @return the entity
+         */
+        public E build() {
+            return mapper.construct( this );
+        }
+    }
+
     /**
      * An entity typically has some kind of identity. Primary key in a database,
      * key in a HashMap.
@@ -154,8 +423,14 @@ public abstract class Mapper< E, K> {
      * @param fieldValues to use
      *
      * @return the constructed entity
+     * @throws IllegalStateException when the entity has no public constructor
+     * taking all fields and this method is not overridden
      */
     public E construct(Object[] fieldValues) {
+        if ( null == allFieldsConstructor ) {
+            throw new IllegalStateException( "no public constructor taking "
+                    + "all fields of " + entityType.getName() );
+        }
         return allFieldsConstructor.apply( fieldValues );
     }
 
@@ -184,8 +459,42 @@ public abstract class Mapper< E, K> {
      * @return the stream
      */
     public Stream<FieldPair> streamNonGenerated(E entity) {
-        return stream( entity )
-                .filter( fp -> !this.generatedFieldNames().contains( fp.key() ) );
+        Object[] fieldValues = deconstruct( entity );
+        return IntStream.of( nonGeneratedIndices )
+                .mapToObj( i -> new FieldPair( entityFields[ i ].getName(),
+                fieldValues[ i ] ) );
+    }
+
+    /**
+     * Deconstruct the entity, leaving out the generated fields. This is what
+     * an insert statement needs, the values are in the order of
+     * {@link #nonGeneratedFieldNames() }.
+     *
+     * @param entity to deconstruct
+     *
+     * @return the values of the non-generated fields
+     */
+    public Object[] deconstructNonGenerated(E entity) {
+        Object[] fieldValues = deconstruct( entity );
+        if ( nonGeneratedIndices.length == fieldValues.length ) {
+            return fieldValues;
+        }
+        Object[] result = new Object[ nonGeneratedIndices.length ];
+        for ( int i = 0; i < nonGeneratedIndices.length; i++ ) {
+            result[ i ] = fieldValues[ nonGeneratedIndices[ i ] ];
+        }
+        return result;
+    }
+
+    /**
+     * The names of the non-generated fields, in deconstruct order.
+     *
+     * @return unmodifiable list of names
+     */
+    public List<String> nonGeneratedFieldNames() {
+        return IntStream.of( nonGeneratedIndices )
+                .mapToObj( i -> entityFields[ i ].getName() )
+                .collect( toUnmodifiableList() );
     }
 
     /**
@@ -199,7 +508,10 @@ public abstract class Mapper< E, K> {
         return streamNonGenerated( entity ).collect( toList() );
     }
 
-    private static final Set<String> interestingModuleNames = new HashSet<>();
+    private static volatile MapperListener listener = MapperListener.NONE;
+
+    private static final Set<String> interestingModuleNames = ConcurrentHashMap
+            .newKeySet();
 
     static {
         var moduleName = Mapper.class.getModule().getName();
@@ -208,8 +520,9 @@ public abstract class Mapper< E, K> {
         }
     }
 
-    private static final Predicate<StackTraceElement> steFilter = ste -> interestingModuleNames
-            .contains( ste.getModuleName() );
+    private static final Predicate<StackTraceElement> steFilter = ste -> null != ste
+            .getModuleName() && interestingModuleNames.contains( ste
+            .getModuleName() );
 
     private static final Logger logger = Logger.getLogger( Mapper.class
             .getName() );
@@ -227,7 +540,7 @@ public abstract class Mapper< E, K> {
             Class[] fieldTypes = Stream.of( fields )
                     .map( f -> f.getType() )
                     .toArray( Class[]::new );
-            declaredConstructor = entityType.getConstructor( fieldTypes );
+            Constructor<E> declaredConstructor = constructorFor( fieldTypes );
             MethodHandle ctorHandle = lookup.unreflectConstructor(
                     declaredConstructor );
             assembler = createCtorFunction( ctorHandle );
@@ -262,21 +575,54 @@ public abstract class Mapper< E, K> {
         logger.log( Level.SEVERE, ex, msg );
     }
 
+    /**
+     * Find the public constructor that takes the field types, or failing that
+     * one whose parameters only differ from them by boxing, like an
+     * {@code int} parameter for an {@code Integer} field. The constructor
+     * handle converts between the two.
+     */
+    private Constructor<E> constructorFor(Class<?>[] fieldTypes) throws
+            NoSuchMethodException {
+        try {
+            return entityType.getConstructor( fieldTypes );
+        } catch ( NoSuchMethodException ex ) {
+            MethodType wanted = MethodType.methodType( void.class, fieldTypes )
+                    .wrap();
+            for ( Constructor<?> c : entityType.getConstructors() ) {
+                if ( MethodType.methodType( void.class, c.getParameterTypes() )
+                        .wrap().equals( wanted ) ) {
+                    @SuppressWarnings( "unchecked" )
+                    Constructor<E> result = (Constructor<E>) c;
+                    return result;
+                }
+            }
+            throw ex;
+        }
+    }
+
     /**
      * Use a method handle to create a function that can construct an entity
      * from an array of objects.
      *
+     * The constructor handle is adapted once into a spreader that takes the
+     * whole array and returns an Object, so that each invocation is an exact
+     * invoke, without the boxing and argument list copying of
+     * {@code invokeWithArguments}.
+     *
      * @param ctorHandle method handle to a found candidate Constructor
      *
      * @return the function.
      */
     @SuppressWarnings( "unchecked" )
     private Function<Object[], E> createCtorFunction(MethodHandle ctorHandle) {
+        final MethodHandle spreader = ctorHandle
+                .asSpreader( Object[].class, ctorHandle.type().parameterCount() )
+                .asType( MethodType.methodType( Object.class, Object[].class ) );
         Function<Object[], E> assembler;
         assembler = (Object[] a) -> {
             E cresult = null;
             try {
-                cresult = (E) ctorHandle.invokeWithArguments( a );
+                cresult = (E) (Object) spreader.invokeExact( a );
             } catch ( Throwable ex ) {
                 Logger.getLogger( Mapper.class.getName() ).log( Level.SEVERE, ex
                         .getMessage() );
@@ -286,7 +632,74 @@ public abstract class Mapper< E, K> {
         return assembler;
     }
 
-    private static final ConcurrentMap<Class<?>, Mapper< ?, ?>> register = new ConcurrentHashMap<>();
+    /**
+     * The mappers by entity type. A ClassValue is a lock free lookup and does
+     * not keep the entity class and its class loader alive.
+     */
+    private static final ClassValue<Mapper< ?, ?>> register = new ClassValue<>() {
+        @Override
+        protected Mapper<?, ?> computeValue(Class<?> type) {
+            FutureTask<Mapper<?, ?>> lookup = lookups.get( type );
+            lookup.run();
+            try {
+                return lookup.get();
+            } catch ( ExecutionException ex ) {
+                // forget the failure, so that a later call tries again
+                lookups.remove( type );
+                Throwable cause = ex.getCause();
+                if ( cause instanceof RuntimeException ) {
+                    throw (RuntimeException) cause;
+                }
+                if ( cause instanceof Error ) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException( cause );
+            } catch ( InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "interrupted while waiting "
+                        + "for the mapper of " + type.getName(), ex );
+            }
+        }
+    };
+
+    /**
+     * The one lookup per entity type. ClassValue may compute a value in
+     * several threads at once and keep the first that completes, so the
+     * register cannot take the mapper from the hand over itself: a thread
+     * that comes second would find nothing. All threads share the task
+     * installed here instead; the first runs it, the others wait for it. The
+     * task takes the mapper from the hand over and, when it is not there,
+     * loads or generates the mapper class. Lookups of other types do not
+     * wait for it.
+     */
+    private static final ClassValue<FutureTask<Mapper< ?, ?>>> lookups = new ClassValue<>() {
+        @Override
+        protected FutureTask<Mapper<?, ?>> computeValue(Class<?> type) {
+            return new FutureTask<>( () -> {
+                AtomicReference<Mapper<?, ?>> handed = handOver.get( type );
+                Mapper<?, ?> mapper = handed.getAndSet( null );
+                if ( null == mapper ) {
+                    loadMapperClass( type );
+                    mapper = handed.getAndSet( null );
+                }
+                return mapper;
+            } );
+        }
+    };
+
+    /**
+     * Hand over from the static initializer of a mapper class to the register.
+     * A mapper class may be initialized long before its entity type is looked
+     * up, or never, so the mapper waits here. The slot is a ClassValue of the
+     * entity type, kept by the entity class itself: a mapper that is never
+     * looked up does not keep the class or its class loader alive.
+     */
+    private static final ClassValue<AtomicReference<Mapper< ?, ?>>> handOver = new ClassValue<>() {
+        @Override
+        protected AtomicReference<Mapper<?, ?>> computeValue(Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
 
     /**
      * Register a mapper.
@@ -294,7 +707,7 @@ public abstract class Mapper< E, K> {
      * @param em mapper to register.
      */
     protected static void register(Mapper<?, ?> em) {
-        register.putIfAbsent(em.entityType, em );
+        handOver.get( em.entityType ).compareAndSet( null, em );
     }
 
     /**
@@ -326,6 +739,10 @@ public abstract class Mapper< E, K> {
      * Retrieve a mapper for the given type. The mapper is either loaded by the
      * class loader or returned from a cache after the first load.
      *
+     * Concurrent first calls for the same type all get the same mapper; the
+     * mapper class is initialized, or generated, once. After the first call
+     * the lookup is a ClassValue get.
+     *
      * @param <X> generic entity type
      * @param <Y> generic key field type of the entity
      * @param et type of (class) entity
@@ -335,9 +752,6 @@ public abstract class Mapper< E, K> {
     @SuppressWarnings( "unchecked" )
     public static <X, Y> Mapper< X, Y> mapperFor(
             Class<X> et) {
-        if ( !register.containsKey( et ) ) {
-            loadMapperClass( et );
-        }
         return (Mapper< X, Y>) register.get( et );
     }
 
@@ -345,11 +759,14 @@ public abstract class Mapper< E, K> {
      * Try to load a mapper for an entity by name. If the type == String.class,
      * do nothing, because String is special.
      *
+     * When no generated mapper class can be found, a method handle based
+     * mapper is created at runtime, see {@link RuntimeMapper}.
+     *
      * @param <E> generic type of entity
      * @param forEntity class
      *
      * @throws a RuntimeException when the requested mapper class cannot be
-     * loaded
+     * loaded nor generated
      */
     static <E> void loadMapperClass(Class<E> forEntity) {
         if ( forEntity == String.class ) {
@@ -363,6 +780,9 @@ public abstract class Mapper< E, K> {
                     new Object[]{ mapperName, forEntity.getSimpleName() } );
 
         } catch ( ClassNotFoundException ex ) {
+            if ( defineRuntimeMapper( forEntity ) ) {
+                return;
+            }
             Logger.getLogger( Mapper.class.getName() ).log( Level.SEVERE,
                     "could not find mapper {0} for class {1}",
                     new String[]{
@@ -373,22 +793,26 @@ public abstract class Mapper< E, K> {
         }
     }
 
-    private String idName = null;
+    /**
+     * Create a runtime mapper. Called from the lookup task of the entity type
+     * only, so a mapper is created at most once per type, while mappers for
+     * other types are created at the same time.
+     *
+     * @param forEntity class
+     *
+     * @return true when the mapper has been defined and registered
+     */
+    private static boolean defineRuntimeMapper(Class<?> forEntity) {
+        return RuntimeMapper.defineMapper( forEntity );
+    }
 
     /**
-     * Get the name of the key field. The method tries to find the {@code @ID}
-     * annotation or returns id to guess for a field name.
+     * Get the name of the key field. The mapper looks for the {@code @ID}
+     * annotation when it is constructed, or guesses id for a field name.
      *
      * @return the key field name.
      */
     public String getKeyFieldName() {
-        if ( idName == null ) {
-            idName = entityFields().stream()
-                    .filter( f -> f.getAnnotation( ID.class ) != null )
-                    .findFirst()
-                    .map( f -> f.getName() )
-                    .orElse( "id" );
-        }
         return idName;
     }
 
@@ -414,8 +838,7 @@ public abstract class Mapper< E, K> {
      * instance.
      */
     public E replaceFields(E e, FieldPair... replacements) {
-        System.out.println( "e =" + e.toString() + "rep " + Arrays.toString(
-                replacements ) );
+        listener.replacingFields( e, replacements );
         Object[] fields = deconstruct( e );
         return construct( replacements, fields );
     }
@@ -446,12 +869,85 @@ public abstract class Mapper< E, K> {
                     "Can't find constructor for array size " + fieldValues.length );
         }
         for ( FieldPair replacement : replacements ) {
-            int idx = nameToFieldIndex.get( replacement.key() );
-            fieldValues[ idx ] = replacement.value();
+            fieldValues[ fieldIndex( replacement.key() ) ] = replacement.value();
         }
         return construct( fieldValues );
     }
 
+    /**
+     * Get the index of the named field in the deconstructed array. Generated
+     * mappers provide the same indices as {@code static final int} constants,
+     * e.g. {@code StudentMapper.COHORT}, so prefer those in client code.
+     *
+     * @param fieldName name of the field
+     *
+     * @return the index
+     *
+     * @throws IllegalArgumentException when the entity has no such field
+     */
+    public int fieldIndex(String fieldName) {
+        Integer idx = nameToFieldIndex.get( fieldName );
+        if ( null == idx ) {
+            throw new IllegalArgumentException( "no field '" + fieldName
+                    + "' in " + entityType.getName() );
+        }
+        return idx;
+    }
+
+    /**
+     * Replace one field by index.
+     * {@code Student older = mapper.replaceField(jan, StudentMapper.COHORT, 2017);}
+     *
+     * @param e entity
+     * @param idx of the field to replace
+     * @param value new value
+     *
+     * @return a new entity with the field replaced
+     */
+    public E replaceField(E e, int idx, Object value) {
+        Object[] fields = deconstruct( e );
+        fields[ idx ] = value;
+        return construct( fields );
+    }
+
+    /**
+     * Replace the fields at the given indices with the values, pairwise.
+     *
+     * @param e entity
+     * @param indices of the fields to replace
+     * @param values new values, same length as indices
+     *
+     * @return a new entity with the fields replaced
+     */
+    public E replaceFields(E e, int[] indices, Object... values) {
+        if ( indices.length != values.length ) {
+            throw new IllegalArgumentException( "got " + indices.length
+                    + " indices but " + values.length + " values" );
+        }
+        Object[] fields = deconstruct( e );
+        for ( int i = 0; i < indices.length; i++ ) {
+            fields[ indices[ i ] ] = values[ i ];
+        }
+        return construct( fields );
+    }
+
+    /**
+     * Project the entity on the fields with the given indices.
+     *
+     * @param e entity
+     * @param indices of the fields to take, in the order of the result
+     *
+     * @return the field values
+     */
+    public Object[] project(E e, int... indices) {
+        Object[] fields = deconstruct( e );
+        Object[] result = new Object[ indices.length ];
+        for ( int i = 0; i < indices.length; i++ ) {
+            result[ i ] = fields[ indices[ i ] ];
+        }
+        return result;
+    }
+
     private boolean isGenerated(Field f) {
         ID idannotation = f.getAnnotation( ID.class );
         Generated genannotation = f.getAnnotation( Generated.class );
@@ -463,35 +959,42 @@ public abstract class Mapper< E, K> {
     /**
      * Return unmodifiable set containing the names of the generated fields.
      *
-     * This method lazily evaluates the generated fields. The result of this set
-     * can be used to remove generated fields form the
+     * The set is computed when the mapper is constructed. The result of this
+     * set can be used to remove generated fields form the
      * {@code FieldPair stream(Entity)} to drop those and use the resulting
-     * stream or list to populate a query.
-     *
-     * Hint: use Set.copyOf to create unmodifyable copy.
+     * stream or list to populate a query. Also see
+     * {@link #deconstructNonGenerated(java.lang.Object) }.
      *
      * @return the field names.
      */
     public final Set<String> generatedFieldNames() {
-        if ( generatedFields == null ) {
-            Set<String> set = entityFields().stream()
-                    .filter( this::isGenerated )
-                    .map( Field::getName )
-                    .collect( toSet() );
-            generatedFields = Set.copyOf( set );
-        }
         return generatedFields;
     }
 
+    /**
+     * Add modules whose frames are kept in the stack traces logged by the
+     * mappers.
+     *
+     * @param moduleNames to add, null names are ignored
+     */
     public static void addModulesToWatch(String... moduleNames) {
-        List<String> mn = Stream.of( moduleNames )
-                .filter( n -> null != n )
-                .collect( toList() );
-        if ( interestingModuleNames.addAll( mn ) ) {
-            mn.forEach( s -> System.out.println( "watching module " + s ) );
+        for ( String moduleName : moduleNames ) {
+            if ( null != moduleName && interestingModuleNames.add( moduleName ) ) {
+                listener.watchingModule( moduleName );
+            }
         }
     }
 
+    /**
+     * Install a diagnostics listener for all mappers. Pass
+     * {@link MapperListener#NONE} or null to switch diagnostics off again.
+     *
+     * @param aListener to install
+     */
+    public static void setListener(MapperListener aListener) {
+        listener = null == aListener ? MapperListener.NONE : aListener;
+    }
+
     /**
      * Get all fields that are marked {@code transient}.
      *
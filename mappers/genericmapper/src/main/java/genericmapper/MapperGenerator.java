@@ -3,7 +3,9 @@ package genericmapper;
 import static genericmapper.Constants.*;
 import java.lang.reflect.Field;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static java.util.stream.Collectors.joining;
@@ -43,6 +45,9 @@ public class MapperGenerator {
             String packageName = entityType.getPackageName();
             Field keyField = getKeyField();
             String keyGetter = getterName( keyField );
+            // the key extractor is a method reference to the key getter
+            String keyGetterRef = keyGetter.substring( 0, keyGetter
+                    .indexOf( '(' ) );
             classText = String.format( MAPPER_TEMPLATE,
                     packageName, // 1
                     typeName, //2 for import
@@ -51,9 +56,13 @@ public class MapperGenerator {
                     Character.toLowerCase( simpleTypeName
                             .charAt( 0 ) ), //5
                     getters(), //6
-                    keyGetter, // 7
+                    keyGetterRef, // 7
                     construct(), //8
-                    LocalDateTime.now()
+                    LocalDateTime.now(), //9
+                    deconstructInto(), //10
+                    typedGetters(), //11
+                    fieldIndexConstants(), //12
+                    constructFromBuilder() //13
             );
         } catch ( NoSuchFieldError nsf ) {
             Logger.getLogger( getClass().getName() ).log( Level.INFO, nsf
@@ -141,6 +150,100 @@ public class MapperGenerator {
         return '('+( t.getPackageName().equals( "java.lang" ) ? t.getSimpleName() : t.getName() ) + "[]".repeat( n )+')';
     }
 
+    /**
+     * Generate the deconstructInto method, which stores the getter results in
+     * a caller supplied buffer.
+     *
+     * @return the method text.
+     */
+    String deconstructInto() {
+        String typeName = entityType.getSimpleName();
+        String paramName = typeName.substring( 0, 1 ).toLowerCase();
+        String assignments = IntStream.range( 0, this.allFields.length )
+                .mapToObj( idx -> String.format( "          buffer[%d] = %s.%s;",
+                idx, paramName, Constants.getterName( allFields[ idx ] ) ) )
+                .collect( joining( "\n" ) );
+
+        return "    public Object[] deconstructInto( " + typeName + " "
+                + paramName + ", Object[] buffer ) {"
+                + "\n"
+                + assignments
+                + "\n          return buffer;\n    }";
+    }
+
+    /**
+     * Generate the field index constants, one per field, named after the field
+     * in upper case with underscores. A field name firstName produces
+     * {@code public static final int FIRST_NAME = 3;}.
+     *
+     * Different field names can map to the same constant, firstName and
+     * first_name for instance. The later field then gets its index appended,
+     * FIRST_NAME_4, and a warning is logged, so the mapper still compiles.
+     *
+     * @return the declarations text.
+     */
+    String fieldIndexConstants() {
+        Set<String> used = new HashSet<>();
+        StringBuilder result = new StringBuilder();
+        for ( int idx = 0; idx < this.allFields.length; idx++ ) {
+            String name = Constants.constantName( allFields[ idx ] );
+            if ( !used.add( name ) ) {
+                String taken = name;
+                do {
+                    name = name + "_" + idx;
+                } while ( !used.add( name ) );
+                Logger.getLogger( getClass().getName() ).log( Level.WARNING,
+                        "constant {0} for field {1} of {2} is taken, using {3}",
+                        new Object[]{ taken, allFields[ idx ].getName(),
+                            entityType.getName(), name } );
+            }
+            if ( idx > 0 ) {
+                result.append( '\n' );
+            }
+            result.append( String.format( "    public static final int %s = %d;",
+                    name, idx ) );
+        }
+        return result.toString();
+    }
+
+    /**
+     * Generate the unboxed getters getInt, getLong, getDouble and getBoolean.
+     * A getter is only generated when the entity has fields of that primitive
+     * type. Wrapper fields are left to the boxing default in Mapper, which
+     * throws on a null value.
+     *
+     * @return the methods text, possibly empty.
+     */
+    String typedGetters() {
+        return typedGetter( "Int", int.class )
+                + typedGetter( "Long", long.class )
+                + typedGetter( "Double", double.class )
+                + typedGetter( "Boolean", boolean.class );
+    }
+
+    private String typedGetter(String suffix, Class<?> primitive) {
+        String typeName = entityType.getSimpleName();
+        String paramName = typeName.substring( 0, 1 ).toLowerCase();
+        String cases = IntStream.range( 0, this.allFields.length )
+                .filter( idx -> allFields[ idx ].getType() == primitive )
+                .mapToObj( idx -> String.format(
+                "            case %d: return %s.%s;", idx, paramName,
+                Constants.getterName( allFields[ idx ] ) ) )
+                .collect( joining( "\n" ) );
+        if ( cases.isEmpty() ) {
+            return "";
+        }
+
+        return "\n    @Override\n"
+                + "    public " + primitive.getName() + " get" + suffix + "( "
+                + typeName + " " + paramName + ", int idx ) {"
+                + "\n          switch ( idx ) {\n"
+                + cases
+                + "\n            default: return super.get" + suffix + "( "
+                + paramName + ", idx );"
+                + "\n          }\n    }\n";
+    }
+
     String construct() {
         String casts = IntStream.range( 0, this.allFields.length )
                 .mapToObj(idx -> String.format("%s args[%d]", castExpression( allFields[ idx ].getType() ), idx ) )
@@ -153,4 +256,45 @@ public class MapperGenerator {
                 + casts + ""
                 + ");\n    }";
     }
+
+    /**
+     * Generate the construct method that takes the values from a builder,
+     * reading primitive fields from their unboxed slots.
+     *
+     * @return the method text.
+     */
+    String constructFromBuilder() {
+        String args = IntStream.range( 0, this.allFields.length )
+                .mapToObj( idx -> builderValue( allFields[ idx ].getType(),
+                idx ) )
+                .collect( joining( ",\n            " ) );
+        String typeName = entityType.getSimpleName();
+
+        return "    public " + typeName + " construct( Mapper.Builder<"
+                + typeName + "> b ) {"
+                + "\n"
+                + "          return new " + typeName
+                + "(\n            "
+                + args
+                + ");\n    }";
+    }
+
+    private static String builderValue(Class<?> t, int idx) {
+        if ( !t.isPrimitive() ) {
+            return castExpression( t ) + " b.value(" + idx + ")";
+        }
+        if ( t == boolean.class ) {
+            return "b.longValue(" + idx + ") != 0";
+        }
+        if ( t == long.class ) {
+            return "b.longValue(" + idx + ")";
+        }
+        if ( t == double.class ) {
+            return "b.doubleValue(" + idx + ")";
+        }
+        if ( t == float.class ) {
+            return "(float) b.doubleValue(" + idx + ")";
+        }
+        return "(" + t.getName() + ") b.longValue(" + idx + ")";
+    }
 }
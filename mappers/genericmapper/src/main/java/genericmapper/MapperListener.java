@@ -0,0 +1,38 @@
+package genericmapper;
+
+/**
+ * Diagnostics hook for the mappers. All methods do nothing by default, so an
+ * implementation only overrides what it wants to see. The arguments are
+ * passed as is; any string building is up to the listener.
+ *
+ * Install a listener with {@link Mapper#setListener(MapperListener) }.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+public interface MapperListener {
+
+    /**
+     * The listener that is installed when no other is set.
+     */
+    MapperListener NONE = new MapperListener() {
+    };
+
+    /**
+     * Called by {@link Mapper#replaceFields(java.lang.Object, genericmapper.FieldPair...)
+     * } before the fields are replaced.
+     *
+     * @param entity the original entity
+     * @param replacements the new field values
+     */
+    default void replacingFields(Object entity, FieldPair[] replacements) {
+    }
+
+    /**
+     * Called when a module is added to the modules that are kept in filtered
+     * stack traces.
+     *
+     * @param moduleName the added module
+     */
+    default void watchingModule(String moduleName) {
+    }
+}
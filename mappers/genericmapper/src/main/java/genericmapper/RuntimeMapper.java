@@ -0,0 +1,129 @@
+package genericmapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fallback for entities that have no mapper generated at build time.
+ *
+ * The mapper reads the fields through method handles, one per field, adapted
+ * once to take and return an Object, and constructs through the all fields
+ * constructor found by {@link Mapper}. Nothing is compiled, so it works on a
+ * plain JRE and for entities of any class loader, as long as the entity
+ * package is open to this module, which is always the case for the unnamed
+ * module.
+ *
+ * @param <E> entity type
+ * @param <K> key type
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+final class RuntimeMapper<E, K> extends Mapper<E, K> {
+
+    private static final Logger logger = Logger.getLogger(
+            RuntimeMapper.class.getName() );
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(
+            Object.class, Object.class );
+
+    private final MethodHandle[] getters;
+    private final MethodHandle keyGetter;
+    private final Class<K> keyType;
+    private final Function<E, K> keyExtractor = this::keyOf;
+
+    @SuppressWarnings( "unchecked" )
+    private RuntimeMapper(Class<E> entityType, Field keyField) throws
+            IllegalAccessException {
+        super( entityType, MethodHandles.privateLookupIn( entityType,
+                MethodHandles.lookup() ) );
+        getters = new MethodHandle[ entityFields.length ];
+        for ( int i = 0; i < getters.length; i++ ) {
+            getters[ i ] = getter( entityFields[ i ] );
+        }
+        keyGetter = getter( keyField );
+        keyType = (Class<K>) MethodType.methodType( keyField.getType() )
+                .wrap().returnType();
+    }
+
+    /**
+     * Create and register a mapper for the entity type.
+     *
+     * @param entityType to map
+     *
+     * @return true if the mapper has been registered.
+     */
+    static boolean defineMapper(Class<?> entityType) {
+        try {
+            Field keyField = new MapperGenerator( entityType ).getKeyField();
+            Mapper.register( new RuntimeMapper<>( entityType, keyField ) );
+            logger.log( Level.INFO, "defined runtime mapper for class {0}",
+                    entityType.getName() );
+            return true;
+        } catch ( IllegalAccessException | NoSuchFieldError ex ) {
+            logger.log( Level.SEVERE, ex, () -> "cannot define mapper for "
+                    + entityType.getName() );
+        }
+        return false;
+    }
+
+    private static MethodHandle getter(Field f) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn( f.getDeclaringClass(),
+                MethodHandles.lookup() )
+                .unreflectGetter( f ).asType( GETTER_TYPE );
+    }
+
+    @Override
+    public Object[] deconstruct(E entity) {
+        return deconstructInto( entity, new Object[ getters.length ] );
+    }
+
+    @Override
+    public Object[] deconstructInto(E entity, Object[] buffer) {
+        try {
+            for ( int i = 0; i < getters.length; i++ ) {
+                buffer[ i ] = (Object) getters[ i ].invokeExact( (Object) entity );
+            }
+        } catch ( Throwable t ) {
+            throw rethrow( t );
+        }
+        return buffer;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private K keyOf(E entity) {
+        try {
+            return (K) (Object) keyGetter.invokeExact( (Object) entity );
+        } catch ( Throwable t ) {
+            throw rethrow( t );
+        }
+    }
+
+    /**
+     * A field getter throws no checked exceptions; unchecked ones, like a
+     * ClassCastException for an entity of the wrong type, pass unchanged.
+     */
+    private static RuntimeException rethrow(Throwable t) {
+        if ( t instanceof RuntimeException ) {
+            return (RuntimeException) t;
+        }
+        if ( t instanceof Error ) {
+            throw (Error) t;
+        }
+        return new IllegalStateException( t );
+    }
+
+    @Override
+    public Function<? super E, ? extends K> keyExtractor() {
+        return keyExtractor;
+    }
+
+    @Override
+    public Class<K> keyType() {
+        return keyType;
+    }
+}
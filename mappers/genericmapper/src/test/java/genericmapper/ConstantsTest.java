@@ -26,6 +26,13 @@ public class ConstantsTest {
 //        fail( "method FieldStrategy completed succesfully; you know what to do" );
     }
 
+    //@Disabled("Think TDD")
+    @Test
+    void tConstantName() {
+        Field f = getClass().getDeclaredFields()[ 0 ];
+        assertThat( Constants.constantName( f ) ).isEqualTo( "FIELD_WITH_NAME" );
+    }
+
     //@Disabled("Think TDD")
     @Test
     void tjavaFileName() {
@@ -0,0 +1,174 @@
+package genericmapper;
+
+import static genericmapper.TestData.jan;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.IntStream;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import testentities.Course;
+import testentities.Student;
+
+/**
+ * Stress the use of mapper metadata from many threads. Freshly constructed
+ * mappers are handed over to reader threads through a plain array slot,
+ * written and read with opaque access: the reader eventually sees the
+ * reference, but nothing orders the writes in the constructor before it. Only
+ * the final fields of Mapper guarantee that the reader sees the metadata
+ * complete. Whether a broken publication shows depends on the hardware and
+ * the JIT, so the test can catch a regression, it cannot prove its absence.
+ *
+ * @author Pieter van den Hombergh {@code Pieter.van.den.Hombergh@gmail.com}
+ */
+public class MapperConcurrencyTest {
+
+    static final int THREADS = 8;
+    static final int ROUNDS = 2_000;
+
+    /**
+     * Minimal mapper, constructed over and over.
+     */
+    static class PlainStudentMapper extends Mapper<Student, Integer> {
+
+        PlainStudentMapper() {
+            super( Student.class );
+        }
+
+        @Override
+        public Object[] deconstruct( Student s ) {
+            return new Object[]{ s.getSnummer(), s.getLastname(),
+                s.getTussenvoegsel(), s.getFirstname(), s.getDob(),
+                s.getCohort(), s.getEmail(), s.getGender(),
+                s.getStudent_class(), s.getActive() };
+        }
+
+        @Override
+        public Function<Student, Integer> keyExtractor() {
+            return Student::getSnummer;
+        }
+
+        @Override
+        public Class<Integer> keyType() {
+            return Integer.class;
+        }
+    }
+
+    /**
+     * The racy hand over, one slot accessed through opaque reads and writes,
+     * which only promise that the reference becomes visible at all.
+     */
+    static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(
+            PlainStudentMapper[].class );
+
+    static final Logger mapperLogger = Logger.getLogger( Mapper.class
+            .getName() );
+    static Level mapperLogLevel;
+
+    /**
+     * Thousands of mappers are constructed, each logging its constructor.
+     */
+    @BeforeAll
+    static void quietMapperLog() {
+        mapperLogLevel = mapperLogger.getLevel();
+        mapperLogger.setLevel( Level.WARNING );
+    }
+
+    @AfterAll
+    static void restoreMapperLog() {
+        mapperLogger.setLevel( mapperLogLevel );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tMetadataIsConsistentAcrossThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool( THREADS );
+        try {
+            for ( int round = 0; round < ROUNDS; round++ ) {
+                PlainStudentMapper[] shared = new PlainStudentMapper[ 1 ];
+                CountDownLatch start = new CountDownLatch( 1 );
+                Callable<String> reader = () -> {
+                    start.await();
+                    PlainStudentMapper m;
+                    while ( ( m = (PlainStudentMapper) SLOT.getOpaque( shared,
+                            0 ) ) == null ) {
+                        Thread.onSpinWait();
+                    }
+                    return m.getKeyFieldName() + m.generatedFieldNames()
+                            + m.deconstructNonGenerated( jan ).length;
+                };
+                List<Future<String>> results = IntStream.range( 0, THREADS - 1 )
+                        .mapToObj( i -> pool.submit( reader ) )
+                        .collect( toList() );
+                start.countDown();
+                SLOT.setOpaque( shared, 0, new PlainStudentMapper() );
+                for ( Future<String> result : results ) {
+                    assertThat( result.get() ).isEqualTo( "snummer[snummer]9" );
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Course has no mapper class, so all threads race to generate one, and
+     * must all get the same.
+     */
+    //@Disabled("Think TDD")
+    @Test
+    void tConcurrentMapperForIsSingleFlight() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool( THREADS );
+        CountDownLatch start = new CountDownLatch( 1 );
+        try {
+            List<Future<Mapper<Course, Integer>>> results = IntStream
+                    .range( 0, THREADS )
+                    .mapToObj( t -> pool.submit( () -> {
+                start.await();
+                return Mapper.<Course, Integer>mapperFor( Course.class );
+            } ) ).collect( toList() );
+            start.countDown();
+            Mapper<Course, Integer> first = results.get( 0 ).get();
+            for ( Future<Mapper<Course, Integer>> result : results ) {
+                assertThat( result.get() ).isNotNull().isSameAs( first );
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tConcurrentModuleWatching() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool( THREADS );
+        CountDownLatch start = new CountDownLatch( 1 );
+        try {
+            List<Future<?>> results = IntStream.range( 0, THREADS )
+                    .mapToObj( t -> pool.submit( () -> {
+                start.await();
+                for ( int i = 0; i < ROUNDS / 10; i++ ) {
+                    Mapper.addModulesToWatch( "stress.module" + t + "." + i );
+                    new PlainStudentMapper();
+                }
+                return null;
+            } ) ).collect( toList() );
+            start.countDown();
+            for ( Future<?> result : results ) {
+                assertThatCode( result::get ).doesNotThrowAnyException();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
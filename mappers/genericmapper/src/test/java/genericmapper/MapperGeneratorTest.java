@@ -12,6 +12,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static java.util.stream.Collectors.toList;
 import java.util.stream.Stream;
 import static org.assertj.core.api.Assertions.*;
+import static org.assertj.core.api.SoftAssertions.assertSoftly;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.MethodOrderer.MethodName;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -83,39 +84,42 @@ public class MapperGeneratorTest {
                 arguments( 7,
                         s( "public", "class", "StudentMapper", "extends",
                                 "Mapper<Student,", "Integer>", "{" ) ),
-                arguments( 9, s( "private", "StudentMapper()", "{" ) ),
-                arguments( 10, s( "super(", "Student.class,",
+                arguments( 9, s( "public", "static", "final", "int", "SNUMMER",
+                        "=", "0;" ) ),
+                arguments( 17, s( "public", "static", "final", "int",
+                        "STUDENT_CLASS", "=", "8;" ) ),
+                arguments( 20, s( "private", "StudentMapper()", "{" ) ),
+                arguments( 21, s( "super(", "Student.class,",
                         "java.lang.invoke.MethodHandles.lookup()", ");" ) ),
-                arguments( 13, s( "static", "{" ) ),
-                arguments( 14, s( "Mapper.register(", "new", "StudentMapper()",
+                arguments( 24, s( "static", "{" ) ),
+                arguments( 25, s( "Mapper.register(", "new", "StudentMapper()",
                         ");" ) ),
-                arguments( 15, s( "}" ) ),
-                arguments( 17, s( "@Override" ) ),
-                arguments( 18,
+                arguments( 26, s( "}" ) ),
+                arguments( 28, s( "@Override" ) ),
+                arguments( 29,
                         s( "public", "Object[]", "deconstruct(", "Student", "s" ) ),
-                arguments( 19, s( "return", "new", "Object[]{" ) ),
-                arguments( 32, s( "@Override" ) ),
-                arguments( 33, s( "public", "Function<Student,", "Integer>",
+                arguments( 30, s( "return", "new", "Object[]{" ) ),
+                arguments( 43, s( "@Override" ) ),
+                arguments( 44, s( "public", "Function<Student,", "Integer>",
                         "keyExtractor()" ) ),
-                arguments( 34, s( "return", "(", "Student", "s", "->",
-                        "s.getSnummer();" ) ),
-                arguments( 36, s( "@Override" ) ),
-                arguments( 37, s( "public", "Class<Integer>", "keyType()", "{" ) ),
-                arguments( 38, s( "return", "Integer.class;" ) ),
-                arguments( 40, s( "@Override" ) ),
-                arguments( 41, s( "public", "Student", "construct(", "Object[]", "args", ")", "{" ) ),
-                arguments( 42, s( "return", "new", "Student(" ) ),
-                arguments( 43, s( "(Integer)", "args[0]," ) ),
-                arguments( 44, s( "(String)", "args[1]," ) ),
-                arguments( 45, s( "(String)", "args[2]," ) ),
-                arguments( 46, s( "(String)", "args[3]," ) ),
-                arguments( 47, s( "(java.time.LocalDate)", "args[4]," ) ),
-                arguments( 48, s( "(int)", "args[5]," ) ),
-                arguments( 49, s( "(String)", "args[6]," ) ),
-                arguments( 50, s( "(String)", "args[7]," ) ),
-                arguments( 51, s( "(String)", "args[8]," ) ),
-                arguments( 52, s( "(Boolean)", "args[9]);" ) ),
-                arguments( 53, s( "}" ) )
+                arguments( 45, s( "return", "Student::getSnummer;" ) ),
+                arguments( 47, s( "@Override" ) ),
+                arguments( 48, s( "public", "Class<Integer>", "keyType()", "{" ) ),
+                arguments( 49, s( "return", "Integer.class;" ) ),
+                arguments( 51, s( "@Override" ) ),
+                arguments( 52, s( "public", "Student", "construct(", "Object[]", "args", ")", "{" ) ),
+                arguments( 53, s( "return", "new", "Student(" ) ),
+                arguments( 54, s( "(Integer)", "args[0]," ) ),
+                arguments( 55, s( "(String)", "args[1]," ) ),
+                arguments( 56, s( "(String)", "args[2]," ) ),
+                arguments( 57, s( "(String)", "args[3]," ) ),
+                arguments( 58, s( "(java.time.LocalDate)", "args[4]," ) ),
+                arguments( 59, s( "(int)", "args[5]," ) ),
+                arguments( 60, s( "(String)", "args[6]," ) ),
+                arguments( 61, s( "(String)", "args[7]," ) ),
+                arguments( 62, s( "(String)", "args[8]," ) ),
+                arguments( 63, s( "(Boolean)", "args[9]);" ) ),
+                arguments( 64, s( "}" ) )
         );
     }
     Class<?> type = Student.class;
@@ -232,4 +236,42 @@ public class MapperGeneratorTest {
         System.out.println( "construct =\n" + construct );
 //        fail( "method generateConstruct reached end. You know what to do." );
     }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tTypedAccessOnlyForPrimitiveFields() {
+        var gen = new MapperGenerator( Student.class );
+        String getters = gen.typedGetters();
+        String construct = gen.constructFromBuilder();
+
+        assertSoftly( s -> {
+            s.assertThat( getters ).contains( "case 5: return s.getCohort();" )
+                    .doesNotContain( "getSnummer" )
+                    .doesNotContain( "getBoolean" );
+            s.assertThat( construct ).contains( "(int) b.longValue(5)" )
+                    .contains( "(Integer) b.value(0)" )
+                    .contains( "(Boolean) b.value(9)" );
+        } );
+//        fail( "method TypedAccessOnlyForPrimitiveFields reached end. You know what to do." );
+    }
+
+    static class NameClash {
+
+        Integer id;
+        String firstName;
+        String first_name;
+        String first_name_2;
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tCollidingConstantNamesAreDisambiguated() {
+        var gen = new MapperGenerator( NameClash.class );
+
+        assertThat( gen.fieldIndexConstants() ).contains(
+                "int FIRST_NAME = 1;",
+                "int FIRST_NAME_2 = 2;",
+                "int FIRST_NAME_2_3 = 3;" );
+//        fail( "method CollidingConstantNamesAreDisambiguated reached end. You know what to do." );
+    }
 }
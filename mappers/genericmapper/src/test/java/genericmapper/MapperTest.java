@@ -1,9 +1,20 @@
 package genericmapper;
 
+import static genericmapper.TestData.cohort;
+import static genericmapper.TestData.courseId;
+import static genericmapper.TestData.credits;
 import static genericmapper.TestData.jan;
+import static genericmapper.TestData.prc2;
+import static genericmapper.TestData.prc2Data;
 import static genericmapper.TestData.sData;
 import static genericmapper.TestData.snummer;
+import static genericmapper.TestData.suzan;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import static java.time.LocalDate.of;
 import java.util.List;
 import java.util.stream.Stream;
@@ -13,7 +24,9 @@ import static org.assertj.core.api.SoftAssertions.assertSoftly;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import testentities.Course;
 import testentities.Student;
+import testentities.StudentMapper;
 import testentities.Tutor;
+import usertypes.Email;
 
 /**
  * For TestData see separate test data class.
@@ -44,6 +57,18 @@ public class MapperTest {
         //End Solution::replacewith::fail( "method StudentMapper completed succesfully; you know what to do" );
     }
 
+    /**
+     * The reflective constructor function must produce the same entity as the
+     * generated construct.
+     */
+    //@Disabled("Think TDD")
+    @Test
+    public void tReflectiveConstructorConstructs() {
+        Student xJan = mapper.allFieldsConstructor.apply( sData );
+        assertThat( xJan ).isEqualTo( jan );
+        assertThat( mapper.deconstruct( xJan ) ).isEqualTo( sData );
+    }
+
     //@Disabled("Think TDD")
     @Test
     public void tStudentMapperDeconstructs() {
@@ -54,6 +79,127 @@ public class MapperTest {
         //End Solution::replacewith::fail( "method StudentMapperDeconstructs completed succesfully; you know what to do" );
     }
 
+    //@Disabled("Think TDD")
+    @Test
+    public void tDeconstructIntoReusesBuffer() {
+        Object[] buffer = new Object[ mapper.getArraySize() ];
+        Object[] result = mapper.deconstructInto( jan, buffer );
+
+        assertThat( result ).isSameAs( buffer ).isEqualTo( sData );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tDefaultDeconstructIntoCopies() {
+        Mapper<Tutor, Integer> tm = Mapper.mapperFor( Tutor.class );
+        Object[] buffer = new Object[ tm.getArraySize() ];
+
+        assertThat( tm.deconstructInto( suzan, buffer ) ).isSameAs( buffer )
+                .isEqualTo( tm.deconstruct( suzan ) );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tTypedGetters() {
+        assertSoftly( s -> {
+            s.assertThat( mapper.getInt( jan, 5 ) ).isEqualTo( cohort );
+            s.assertThat( mapper.getInt( jan, 0 ) ).isEqualTo( snummer );
+            s.assertThat( mapper.getLong( jan, 5 ) ).isEqualTo( cohort );
+            s.assertThat( mapper.getDouble( jan, 5 ) ).isEqualTo( cohort );
+            s.assertThat( mapper.getBoolean( jan, 9 ) ).isTrue();
+        } );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tBuilderBuilds() {
+        Mapper.Builder<Student> builder = mapper.builder();
+        for ( int i = 0; i < sData.length; i++ ) {
+            builder.set( i, sData[ i ] );
+        }
+        Student xJan = builder.setInt( 5, 2019 ).set( 9, false ).build();
+
+        assertSoftly( s -> {
+            s.assertThat( xJan ).isEqualTo( jan );
+            s.assertThat( xJan.getCohort() ).isEqualTo( 2019 );
+            s.assertThat( xJan.getActive() ).isFalse();
+        } );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tTypedGetterOnNullWrapperThrows() {
+        Student nobody = new Student( null, "Nobody", "", "No", of( 1999, 1,
+                1 ), 2020, "no@example.com", "X", "none", null );
+
+        assertSoftly( s -> {
+            s.assertThatThrownBy( () -> mapper.getInt( nobody, 0 ) )
+                    .isInstanceOf( NullPointerException.class );
+            s.assertThatThrownBy( () -> mapper.getBoolean( nobody, 9 ) )
+                    .isInstanceOf( NullPointerException.class );
+            s.assertThat( mapper.getInt( nobody, 5 ) ).isEqualTo( 2020 );
+        } );
+//        fail( "method TypedGetterOnNullWrapperThrows completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tTypedSetterRejectsOtherFieldType() {
+        Mapper.Builder<Student> builder = mapper.builder();
+
+        assertSoftly( s -> {
+            s.assertThatThrownBy( () -> builder.setInt( 0, 1 ) )
+                    .isInstanceOf( IllegalArgumentException.class );
+            s.assertThatThrownBy( () -> builder.setBoolean( 9, true ) )
+                    .isInstanceOf( IllegalArgumentException.class );
+        } );
+//        fail( "method TypedSetterRejectsOtherFieldType completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tDefaultBuilderConstructBoxes() {
+        Mapper<Course, Integer> cm = Mapper.mapperFor( Course.class );
+        Mapper.Builder<Course> builder = cm.builder();
+        for ( int i = 0; i < prc2Data.length; i++ ) {
+            builder.set( i, prc2Data[ i ] );
+        }
+
+        // Course.equals compares the Integer id by reference
+        assertThat( builder.setInt( 2, credits ).build() )
+                .usingRecursiveComparison().isEqualTo( prc2 );
+//        fail( "method DefaultBuilderConstructBoxes completed succesfully; you know what to do" );
+    }
+
+    /**
+     * Entity without a constructor that takes all fields.
+     */
+    public static class NoAllFieldsConstructor {
+
+        final Integer id;
+        final String name;
+
+        public NoAllFieldsConstructor( String name ) {
+            this.id = name.length();
+            this.name = name;
+        }
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    public void tConstructWithoutConstructorFails() {
+        Mapper<NoAllFieldsConstructor, Integer> nm = Mapper.mapperFor(
+                NoAllFieldsConstructor.class );
+        Object[] values = nm.deconstruct( new NoAllFieldsConstructor( "x" ) );
+
+        assertThatThrownBy( () -> nm.construct( values ) )
+                .isInstanceOf( IllegalStateException.class )
+                .hasMessageContaining( NoAllFieldsConstructor.class.getName() );
+        assertThatThrownBy( () -> nm.builder().build() )
+                .isInstanceOf( IllegalStateException.class );
+//        fail( "method ConstructWithoutConstructorFails completed succesfully; you know what to do" );
+    }
+
     //@Disabled("Think TDD")
     @Test
     public void tMapperStreams() {
@@ -92,16 +238,99 @@ public class MapperTest {
         //End Solution::replacewith::fail( "method tStream completed succesfully; you know what to do" );
     }
 
+    /**
+     * Email has no id field, so no mapper can be generated either.
+     */
     @Test
     public void tUnknownClassShouldThrow() {
         ThrowingCallable code = () -> {
-            var mapper1 = Mapper.mapperFor( Course.class );
+            var mapper1 = Mapper.mapperFor( Email.class );
         };
 
         assertThatThrownBy( code )
                 .isInstanceOf( RuntimeException.class );
     }
 
+    /**
+     * Course has no generated mapper class, so it is generated at runtime.
+     */
+    //@Disabled("Think TDD")
+    @Test
+    public void tRuntimeMapperForUnknownClass() {
+        Mapper<Course, Integer> courseMapper = Mapper.mapperFor( Course.class );
+        assertThat( courseMapper ).isInstanceOf( RuntimeMapper.class );
+        Object[] parts = courseMapper.deconstruct( prc2 );
+        assertSoftly( s -> {
+            s.assertThat( parts ).isEqualTo( prc2Data );
+            // Course.equals compares the Integer id by reference
+            s.assertThat( courseMapper.construct( parts ) )
+                    .usingRecursiveComparison().isEqualTo( prc2 );
+            s.assertThat( courseMapper.keyExtractor().apply( prc2 ) )
+                    .isEqualTo( courseId );
+            s.assertThat( Mapper.mapperFor( Course.class ) )
+                    .isSameAs( courseMapper );
+        } );
+    }
+
+    /**
+     * An entity class from a class loader that the application class path
+     * does not know still gets a runtime mapper.
+     */
+    //@Disabled("Think TDD")
+    @Test
+    public void tRuntimeMapperForOtherClassLoader() throws Exception {
+        URL testClasses = Course.class.getProtectionDomain().getCodeSource()
+                .getLocation();
+        try ( URLClassLoader loader = new URLClassLoader( new URL[]{
+            testClasses }, null ) ) {
+            @SuppressWarnings( "unchecked" )
+            Class<Object> course = (Class<Object>) loader.loadClass( Course.class
+                    .getName() );
+            Mapper<Object, Object> courseMapper = Mapper.mapperFor( course );
+            Object copy = courseMapper.construct( prc2Data );
+
+            assertSoftly( s -> {
+                s.assertThat( course ).isNotSameAs( Course.class );
+                s.assertThat( courseMapper ).isInstanceOf( RuntimeMapper.class );
+                s.assertThat( copy ).isInstanceOf( course );
+                s.assertThat( courseMapper.deconstruct( copy ) )
+                        .isEqualTo( prc2Data );
+                s.assertThat( courseMapper.keyExtractor().apply( copy ) )
+                        .isEqualTo( courseId );
+            } );
+        }
+//        fail( "method RuntimeMapperForOtherClassLoader completed succesfully; you know what to do" );
+    }
+
+    /**
+     * A mapper that registers itself but is never looked up must not keep its
+     * entity class loader alive.
+     */
+    //@Disabled("Think TDD")
+    @Test
+    public void tUnusedRegisteredMapperDoesNotPinLoader() throws Exception {
+        WeakReference<ClassLoader> loader = registerInThrowAwayLoader();
+        for ( int i = 0; i < 20 && null != loader.get(); i++ ) {
+            System.gc();
+            Thread.sleep( 50 );
+        }
+
+        assertThat( loader.get() ).isNull();
+//        fail( "method UnusedRegisteredMapperDoesNotPinLoader completed succesfully; you know what to do" );
+    }
+
+    private static WeakReference<ClassLoader> registerInThrowAwayLoader()
+            throws Exception {
+        URL testClasses = Course.class.getProtectionDomain().getCodeSource()
+                .getLocation();
+        URLClassLoader loader = new URLClassLoader( new URL[]{ testClasses },
+                null );
+        Class<?> course = loader.loadClass( Course.class.getName() );
+        assertThat( RuntimeMapper.defineMapper( course ) ).isTrue();
+        loader.close();
+        return new WeakReference<>( loader );
+    }
+
     //@Disabled("Think TDD")
     @Test
     void tExtractorTest() {
@@ -154,6 +383,58 @@ public class MapperTest {
 //        fail( "method ReplaceFields completed succesfully; you know what to do" );
     }
 
+    //@Disabled("Think TDD")
+    @Test
+    void tReplaceFieldsNotifiesListener() {
+        List<Object> seen = new ArrayList<>();
+        Mapper.setListener( new MapperListener() {
+            @Override
+            public void replacingFields( Object entity,
+                    FieldPair[] replacements ) {
+                seen.add( entity );
+                seen.add( replacements.length );
+            }
+        } );
+        try {
+            mapper.replaceFields( jan, fp( "gender", "F" ) );
+        } finally {
+            Mapper.setListener( null );
+        }
+        assertThat( seen ).containsExactly( jan, 1 );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tReplaceFieldsByIndex() {
+        Student pieterNel = mapper.replaceFields( jan,
+                new int[]{ StudentMapper.GENDER, StudentMapper.FIRSTNAME },
+                "F", "Pieternel" );
+        Student older = mapper.replaceField( jan, StudentMapper.COHORT, 2017 );
+
+        assertSoftly( s -> {
+            s.assertThat( pieterNel.getFirstname() ).isEqualTo( "Pieternel" );
+            s.assertThat( pieterNel.getGender() ).isEqualTo( "F" );
+            s.assertThat( older.getCohort() ).isEqualTo( 2017 );
+        } );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tProject() {
+        assertThat( mapper.project( jan, StudentMapper.LASTNAME,
+                StudentMapper.COHORT ) )
+                .containsExactly( "Klaassen", 2018 );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tFieldIndex() {
+        assertThat( mapper.fieldIndex( "student_class" ) )
+                .isEqualTo( StudentMapper.STUDENT_CLASS );
+        assertThatThrownBy( () -> mapper.fieldIndex( "nosuchfield" ) )
+                .isInstanceOf( IllegalArgumentException.class );
+    }
+
     //@Disabled("Think TDD")
     @Test
     void tGeneratedFieldNames() {
@@ -200,6 +481,20 @@ public class MapperTest {
 //        fail( "method StreamNonGenerated completed succesfully; you know what to do" );
     }
 
+    //@Disabled("Think TDD")
+    @Test
+    void tDeconstructNonGenerated() {
+        Object[] values = mapper.deconstructNonGenerated( jan );
+        assertSoftly( s -> {
+            s.assertThat( values ).isEqualTo( Arrays.copyOfRange( sData, 1,
+                    sData.length ) );
+            s.assertThat( mapper.nonGeneratedFieldNames() )
+                    .hasSize( values.length )
+                    .doesNotContain( "snummer" )
+                    .startsWith( "lastname" );
+        } );
+    }
+
     //@Disabled("Think TDD")
     @Test
     void tNonGeneratedFieldPairs() {
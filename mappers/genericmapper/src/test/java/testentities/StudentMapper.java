@@ -9,6 +9,18 @@ import java.util.function.Function;
  */
 public class StudentMapper extends Mapper<Student, Integer> {
 
+    // field indices in the deconstructed array
+    public static final int SNUMMER = 0;
+    public static final int LASTNAME = 1;
+    public static final int TUSSENVOEGSEL = 2;
+    public static final int FIRSTNAME = 3;
+    public static final int DOB = 4;
+    public static final int COHORT = 5;
+    public static final int EMAIL = 6;
+    public static final int GENDER = 7;
+    public static final int STUDENT_CLASS = 8;
+    public static final int ACTIVE = 9;
+
     // No public ctor 
     private StudentMapper() {
         super( Student.class, java.lang.invoke.MethodHandles.lookup()  );
@@ -61,4 +73,43 @@ public class StudentMapper extends Mapper<Student, Integer> {
             (String) args[8],
             (Boolean) args[9]);
     }
+
+    @Override
+    public Student construct( Mapper.Builder<Student> b ) {
+          return new Student(
+            (Integer) b.value(0),
+            (String) b.value(1),
+            (String) b.value(2),
+            (String) b.value(3),
+            (java.time.LocalDate) b.value(4),
+            (int) b.longValue(5),
+            (String) b.value(6),
+            (String) b.value(7),
+            (String) b.value(8),
+            (Boolean) b.value(9));
+    }
+
+    @Override
+    public Object[] deconstructInto( Student s, Object[] buffer ) {
+          buffer[0] = s.getSnummer();
+          buffer[1] = s.getLastname();
+          buffer[2] = s.getTussenvoegsel();
+          buffer[3] = s.getFirstname();
+          buffer[4] = s.getDob();
+          buffer[5] = s.getCohort();
+          buffer[6] = s.getEmail();
+          buffer[7] = s.getGender();
+          buffer[8] = s.getStudent_class();
+          buffer[9] = s.getActive();
+          return buffer;
+    }
+
+    @Override
+    public int getInt( Student s, int idx ) {
+          switch ( idx ) {
+            case 5: return s.getCohort();
+            default: return super.getInt( s, idx );
+          }
+    }
+
 }
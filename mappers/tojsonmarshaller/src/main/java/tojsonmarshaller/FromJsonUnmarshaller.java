@@ -0,0 +1,678 @@
+package tojsonmarshaller;
+
+import genericmapper.Mapper;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads json as written by {@link ToJsonMarshaller} back into entities.
+ *
+ * The values of an object are read straight into an {@code Object[]} in
+ * {@link Mapper#entityFields() } order and handed to
+ * {@link Mapper#construct(java.lang.Object[]) }. How each field is read is
+ * decided once per entity type from the declared field type, so no reflection
+ * is done per field. Unknown keys are skipped, missing fields are null or the
+ * default of a primitive.
+ *
+ * References as written with {@link ToJsonMarshaller.References#IDS} are
+ * resolved to the same instance. Entities are constructed from their field
+ * values, so a reference back to an entity that is still being read, a
+ * cycle, cannot be resolved and is reported as error.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ * @param <E> entity type to be read.
+ */
+public class FromJsonUnmarshaller<E> {
+
+    final Class<E> entityType;
+    final Mapper<E, Object> mapper;
+    final Map<String, Integer> fieldIndex;
+    final ValueReader[] fieldReaders;
+
+    /**
+     * Initial field values: null, the default of a primitive field or an
+     * empty Optional.
+     */
+    final Object[] defaults;
+
+    private FromJsonUnmarshaller( Class<E> entityType ) {
+        this.entityType = entityType;
+        mapper = Mapper.mapperFor( entityType );
+        List<Field> fields = mapper.entityFields();
+        fieldIndex = new HashMap<>();
+        fieldReaders = new ValueReader[ fields.size() ];
+        defaults = new Object[ fields.size() ];
+        for ( int i = 0; i < fieldReaders.length; i++ ) {
+            Field f = fields.get( i );
+            fieldIndex.put( f.getName(), i );
+            fieldReaders[ i ] = valueReader( f.getType(), f.getGenericType() );
+            if ( f.getType().isPrimitive() ) {
+                defaults[ i ] = Array.get( Array.newInstance( f.getType(), 1 ),
+                        0 );
+            } else if ( Optional.class == f.getType() ) {
+                defaults[ i ] = Optional.empty();
+            }
+        }
+    }
+
+    private static final ConcurrentMap<Class<?>, FromJsonUnmarshaller<?>> cache = new ConcurrentHashMap<>();
+
+    @SuppressWarnings( "unchecked" )
+    static <T> FromJsonUnmarshaller<T> forType( Class<T> clz ) {
+        return (FromJsonUnmarshaller<T>) cache
+                .computeIfAbsent( clz, ( c ) -> new FromJsonUnmarshaller<>( c ) );
+    }
+
+    /**
+     * Read a value of the given type from a json string.
+     *
+     * @param <T>  result type
+     * @param json text
+     * @param type of the value, an entity, atom or array type
+     *
+     * @return the value
+     *
+     * @throws IllegalArgumentException on malformed input
+     */
+    public static <T> T fromJson( String json, Class<T> type ) {
+        try {
+            return fromJson( new StringReader( json ), type );
+        } catch ( IOException ex ) {
+            // a StringReader does not throw
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    /**
+     * Read a value of the given type from a character stream. The stream
+     * must contain exactly one value. The tokenizer does its own buffering.
+     *
+     * @param <T>  result type
+     * @param in   to read
+     * @param type of the value, an entity, atom or array type
+     *
+     * @return the value
+     *
+     * @throws IOException              when the reader does
+     * @throws IllegalArgumentException on malformed input
+     */
+    public static <T> T fromJson( Reader in, Class<T> type ) throws
+            IOException {
+        JsonReader reader = new JsonReader( in );
+        Object result = reader.consumeNull() ? null
+                : valueReader( type, type ).read( reader );
+        reader.expectEnd();
+        @SuppressWarnings( "unchecked" )
+        T t = (T) result;
+        return t;
+    }
+
+    /**
+     * Read a json array of elements of the given type.
+     *
+     * @param <T>         element type
+     * @param json        text
+     * @param elementType type of the elements
+     *
+     * @return the elements
+     *
+     * @throws IllegalArgumentException on malformed input
+     */
+    public static <T> List<T> listFromJson( String json, Class<T> elementType ) {
+        try {
+            return listFromJson( new StringReader( json ), elementType );
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    /**
+     * Read a json array of elements of the given type from a character
+     * stream.
+     *
+     * @param <T>         element type
+     * @param in          to read
+     * @param elementType type of the elements
+     *
+     * @return the elements
+     *
+     * @throws IOException              when the reader does
+     * @throws IllegalArgumentException on malformed input
+     */
+    public static <T> List<T> listFromJson( Reader in, Class<T> elementType )
+            throws IOException {
+        JsonReader reader = new JsonReader( in );
+        List<T> result = new ArrayList<>();
+        ValueReader elementReader = valueReader( elementType, elementType );
+        reader.expect( '[' );
+        for ( boolean first = true; reader.hasNext( ']', first ); first = false ) {
+            @SuppressWarnings( "unchecked" )
+            T element = reader.consumeNull() ? null : (T) elementReader
+                    .read( reader );
+            result.add( element );
+        }
+        reader.expectEnd();
+        return result;
+    }
+
+    /**
+     * Read JSON Lines lazily. Each value is read when the stream asks for
+     * it, so memory use does not depend on the size of the input. Blank
+     * lines are ignored. The reader is not closed by the stream.
+     *
+     * @param <T>  element type
+     * @param in   to read
+     * @param type of the values
+     *
+     * @return stream of values, null for a null line
+     *
+     * @throws UncheckedIOException when reading fails
+     * @throws IllegalArgumentException on malformed input, when it is
+     * reached
+     */
+    public static <T> Stream<T> jsonLines( Reader in, Class<T> type ) {
+        JsonReader reader = new JsonReader( in );
+        ValueReader valueReader = valueReader( type, type );
+        Iterator<T> values = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return reader.peek() != -1;
+                } catch ( IOException ex ) {
+                    throw new UncheckedIOException( ex );
+                }
+            }
+
+            @Override
+            public T next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    @SuppressWarnings( "unchecked" )
+                    T value = reader.consumeNull() ? null : (T) valueReader
+                            .read( reader );
+                    return value;
+                } catch ( IOException ex ) {
+                    throw new UncheckedIOException( ex );
+                }
+            }
+        };
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize(
+                values, Spliterator.ORDERED ), false );
+    }
+
+    /**
+     * Read one json object into an entity.
+     *
+     * @param in tokenizer positioned at the opening brace
+     *
+     * @return the entity
+     *
+     * @throws IOException when the underlying reader does
+     */
+    final E readObject( JsonReader in ) throws IOException {
+        Object[] fieldValues = defaults.clone();
+        int id = 0;
+        in.expect( '{' );
+        for ( boolean first = true; in.hasNext( '}', first ); first = false ) {
+            String key = in.readString();
+            in.expect( ':' );
+            Integer idx = fieldIndex.get( key );
+            if ( null != idx ) {
+                if ( !in.consumeNull() ) {
+                    fieldValues[ idx ] = fieldReaders[ idx ].read( in );
+                }
+            } else if ( first && "@ref".equals( key ) ) {
+                Object referred = in.reference( in.readInt( 1,
+                        Integer.MAX_VALUE ) );
+                in.expect( '}' );
+                if ( !entityType.isInstance( referred ) ) {
+                    throw in.error( "reference to a "
+                            + referred.getClass().getName() + " where a "
+                            + entityType.getName() + " is expected" );
+                }
+                return entityType.cast( referred );
+            } else if ( first && "@id".equals( key ) ) {
+                id = in.readInt( 1, Integer.MAX_VALUE );
+            } else {
+                in.skipValue();
+            }
+        }
+        E result = mapper.construct( fieldValues );
+        if ( id > 0 ) {
+            in.define( id, result );
+        }
+        return result;
+    }
+
+    /**
+     * Reads one non null value.
+     */
+    @FunctionalInterface
+    interface ValueReader {
+
+        Object read( JsonReader in ) throws IOException;
+    }
+
+    static final ValueReader STRING = JsonReader::readString;
+    static final ValueReader INT = in -> in.readInt( Integer.MIN_VALUE,
+            Integer.MAX_VALUE );
+    static final ValueReader LONG = JsonReader::readLong;
+    static final ValueReader SHORT = in -> (short) in.readInt( Short.MIN_VALUE,
+            Short.MAX_VALUE );
+    static final ValueReader BYTE = in -> (byte) in.readInt( Byte.MIN_VALUE,
+            Byte.MAX_VALUE );
+    static final ValueReader DOUBLE = JsonReader::readDouble;
+    static final ValueReader FLOAT = in -> (float) in.readDouble();
+    static final ValueReader BOOLEAN = JsonReader::readBoolean;
+    static final ValueReader CHAR = in -> in.readString().charAt( 0 );
+    static final ValueReader LOCAL_DATE = in -> LocalDate
+            .parse( in.readString() );
+    static final ValueReader LOCAL_DATE_TIME = in -> LocalDateTime
+            .parse( in.readString() );
+    static final ValueReader CHARS = in -> in.readString().toCharArray();
+    static final ValueReader ANY = FromJsonUnmarshaller::readAny;
+    private static final ValueReader ANY_LIST = collectionReader(
+            ArrayList::new, ANY );
+
+    private static final Map<Class<?>, ValueReader> atomReaders = Map.ofEntries(
+            Map.entry( String.class, STRING ),
+            Map.entry( Integer.class, INT ),
+            Map.entry( int.class, INT ),
+            Map.entry( Long.class, LONG ),
+            Map.entry( long.class, LONG ),
+            Map.entry( Short.class, SHORT ),
+            Map.entry( short.class, SHORT ),
+            Map.entry( Byte.class, BYTE ),
+            Map.entry( byte.class, BYTE ),
+            Map.entry( Double.class, DOUBLE ),
+            Map.entry( double.class, DOUBLE ),
+            Map.entry( Float.class, FLOAT ),
+            Map.entry( float.class, FLOAT ),
+            Map.entry( Boolean.class, BOOLEAN ),
+            Map.entry( boolean.class, BOOLEAN ),
+            Map.entry( Character.class, CHAR ),
+            Map.entry( char.class, CHAR ),
+            Map.entry( LocalDate.class, LOCAL_DATE ),
+            Map.entry( LocalDateTime.class, LOCAL_DATE_TIME ),
+            Map.entry( char[].class, CHARS )
+    );
+
+    /**
+     * Byte arrays are either a Base64 string or an array of numbers.
+     */
+    static final ValueReader BYTES = in -> in.peek() == '"'
+            ? Base64.getDecoder().decode( in.readString() )
+            : readBytes( in );
+
+    /**
+     * Readers for the primitive arrays, which fill the array without boxing.
+     * A null element leaves the default value.
+     */
+    private static final Map<Class<?>, ValueReader> primitiveArrayReaders = Map
+            .of(
+                    int[].class, FromJsonUnmarshaller::readInts,
+                    long[].class, FromJsonUnmarshaller::readLongs,
+                    double[].class, FromJsonUnmarshaller::readDoubles,
+                    float[].class, FromJsonUnmarshaller::readFloats,
+                    short[].class, FromJsonUnmarshaller::readShorts,
+                    boolean[].class, FromJsonUnmarshaller::readBooleans,
+                    byte[].class, BYTES
+            );
+
+    /**
+     * Collections for the declared interface types. Other collection types
+     * must be concrete and have a public no argument constructor.
+     */
+    private static final Map<Class<?>, Supplier<Collection<Object>>> collectionFactories = Map
+            .ofEntries(
+                    Map.entry( Collection.class, ArrayList::new ),
+                    Map.entry( List.class, ArrayList::new ),
+                    Map.entry( Set.class, LinkedHashSet::new ),
+                    Map.entry( SortedSet.class, TreeSet::new ),
+                    Map.entry( NavigableSet.class, TreeSet::new ),
+                    Map.entry( Queue.class, ArrayDeque::new ),
+                    Map.entry( Deque.class, ArrayDeque::new ),
+                    Map.entry( ArrayList.class, ArrayList::new ),
+                    Map.entry( LinkedList.class, LinkedList::new ),
+                    Map.entry( HashSet.class, HashSet::new ),
+                    Map.entry( LinkedHashSet.class, LinkedHashSet::new ),
+                    Map.entry( TreeSet.class, TreeSet::new ),
+                    Map.entry( ArrayDeque.class, ArrayDeque::new )
+            );
+
+    /**
+     * Select the reader for a declared type. The generic type supplies the
+     * element type of collections and optionals. Value types that have a
+     * user registered {@link JsonCodec} are read through that codec.
+     *
+     * @param type        declared type
+     * @param genericType declared generic type
+     *
+     * @return the reader
+     */
+    static ValueReader valueReader( Class<?> type, Type genericType ) {
+        ValueReader atomReader = atomReaders.get( type );
+        if ( null != atomReader && ( char[].class == type || JsonCodecs
+                .isBuiltIn( type ) ) ) {
+            return atomReader;
+        }
+        JsonCodec<?> codec = JsonCodecs.codecFor( type );
+        if ( null != codec ) {
+            return in -> codec.read( in.readToken() );
+        }
+        if ( Optional.class == type ) {
+            ValueReader valueReader = valueReader( elementType( genericType ),
+                    Object.class );
+            return in -> Optional.of( valueReader.read( in ) );
+        }
+        ValueReader primitiveArrayReader = primitiveArrayReaders.get( type );
+        if ( null != primitiveArrayReader ) {
+            return primitiveArrayReader;
+        }
+        if ( type.isArray() ) {
+            Class<?> componentType = type.getComponentType();
+            return arrayReader( componentType, valueReader( componentType,
+                    componentType ) );
+        }
+        if ( Collection.class.isAssignableFrom( type ) ) {
+            return collectionReader( collectionFactory( type ),
+                    valueReader( elementType( genericType ), Object.class ) );
+        }
+        if ( type.isInterface() || type.isPrimitive() || Object.class == type ) {
+            return ANY;
+        }
+        return new EntityReader( type );
+    }
+
+    private static Class<?> elementType( Type genericType ) {
+        if ( genericType instanceof ParameterizedType ) {
+            Type arg = ( (ParameterizedType) genericType )
+                    .getActualTypeArguments()[ 0 ];
+            if ( arg instanceof Class ) {
+                return (Class<?>) arg;
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * Reader for arrays of a reference type. The array is created once with
+     * the component type and grown with {@link Arrays#copyOf}, which keeps
+     * it.
+     */
+    private static ValueReader arrayReader( Class<?> componentType,
+            ValueReader elementReader ) {
+        return in -> {
+            Object[] array = (Object[]) Array.newInstance( componentType, 16 );
+            int size = 0;
+            in.expect( '[' );
+            for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+                if ( size == array.length ) {
+                    array = Arrays.copyOf( array, size * 2 );
+                }
+                array[ size++ ] = in.consumeNull() ? null
+                        : elementReader.read( in );
+            }
+            return Arrays.copyOf( array, size );
+        };
+    }
+
+    private static int[] readInts( JsonReader in ) throws IOException {
+        int[] array = new int[ 16 ];
+        int size = 0;
+        in.expect( '[' );
+        for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+            if ( size == array.length ) {
+                array = Arrays.copyOf( array, size * 2 );
+            }
+            if ( !in.consumeNull() ) {
+                array[ size ] = in.readInt( Integer.MIN_VALUE,
+                        Integer.MAX_VALUE );
+            }
+            size++;
+        }
+        return Arrays.copyOf( array, size );
+    }
+
+    private static long[] readLongs( JsonReader in ) throws IOException {
+        long[] array = new long[ 16 ];
+        int size = 0;
+        in.expect( '[' );
+        for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+            if ( size == array.length ) {
+                array = Arrays.copyOf( array, size * 2 );
+            }
+            if ( !in.consumeNull() ) {
+                array[ size ] = in.readLong();
+            }
+            size++;
+        }
+        return Arrays.copyOf( array, size );
+    }
+
+    private static double[] readDoubles( JsonReader in ) throws IOException {
+        double[] array = new double[ 16 ];
+        int size = 0;
+        in.expect( '[' );
+        for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+            if ( size == array.length ) {
+                array = Arrays.copyOf( array, size * 2 );
+            }
+            if ( !in.consumeNull() ) {
+                array[ size ] = in.readDouble();
+            }
+            size++;
+        }
+        return Arrays.copyOf( array, size );
+    }
+
+    private static float[] readFloats( JsonReader in ) throws IOException {
+        float[] array = new float[ 16 ];
+        int size = 0;
+        in.expect( '[' );
+        for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+            if ( size == array.length ) {
+                array = Arrays.copyOf( array, size * 2 );
+            }
+            if ( !in.consumeNull() ) {
+                array[ size ] = (float) in.readDouble();
+            }
+            size++;
+        }
+        return Arrays.copyOf( array, size );
+    }
+
+    private static short[] readShorts( JsonReader in ) throws IOException {
+        short[] array = new short[ 16 ];
+        int size = 0;
+        in.expect( '[' );
+        for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+            if ( size == array.length ) {
+                array = Arrays.copyOf( array, size * 2 );
+            }
+            if ( !in.consumeNull() ) {
+                array[ size ] = (short) in.readInt( Short.MIN_VALUE,
+                        Short.MAX_VALUE );
+            }
+            size++;
+        }
+        return Arrays.copyOf( array, size );
+    }
+
+    private static byte[] readBytes( JsonReader in ) throws IOException {
+        byte[] array = new byte[ 16 ];
+        int size = 0;
+        in.expect( '[' );
+        for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+            if ( size == array.length ) {
+                array = Arrays.copyOf( array, size * 2 );
+            }
+            if ( !in.consumeNull() ) {
+                array[ size ] = (byte) in.readInt( Byte.MIN_VALUE,
+                        Byte.MAX_VALUE );
+            }
+            size++;
+        }
+        return Arrays.copyOf( array, size );
+    }
+
+    private static boolean[] readBooleans( JsonReader in ) throws IOException {
+        boolean[] array = new boolean[ 16 ];
+        int size = 0;
+        in.expect( '[' );
+        for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+            if ( size == array.length ) {
+                array = Arrays.copyOf( array, size * 2 );
+            }
+            if ( !in.consumeNull() ) {
+                array[ size ] = in.readBoolean();
+            }
+            size++;
+        }
+        return Arrays.copyOf( array, size );
+    }
+
+    /**
+     * Select how a collection of the declared type is created.
+     *
+     * @param type declared collection type
+     *
+     * @return the factory
+     *
+     * @throws IllegalArgumentException when the type is abstract and not one
+     * of the known interfaces, or has no public no argument constructor
+     */
+    @SuppressWarnings( "unchecked" )
+    static Supplier<Collection<Object>> collectionFactory( Class<?> type ) {
+        Supplier<Collection<Object>> factory = collectionFactories.get( type );
+        if ( null != factory ) {
+            return factory;
+        }
+        if ( !type.isInterface() && !Modifier.isAbstract( type
+                .getModifiers() ) ) {
+            try {
+                MethodHandle constructor = MethodHandles.publicLookup()
+                        .findConstructor( type, MethodType.methodType(
+                                void.class ) )
+                        .asType( MethodType.methodType( Collection.class ) );
+                return () -> {
+                    try {
+                        return (Collection<Object>) constructor.invokeExact();
+                    } catch ( RuntimeException | Error ex ) {
+                        throw ex;
+                    } catch ( Throwable ex ) {
+                        throw new IllegalStateException( ex );
+                    }
+                };
+            } catch ( NoSuchMethodException | IllegalAccessException ex ) {
+                // reported below
+            }
+        }
+        throw new IllegalArgumentException( "cannot read a " + type.getName()
+                + ", it needs a public no argument constructor" );
+    }
+
+    private static ValueReader collectionReader(
+            Supplier<Collection<Object>> factory, ValueReader elementReader ) {
+        return in -> {
+            Collection<Object> result = factory.get();
+            in.expect( '[' );
+            for ( boolean first = true; in.hasNext( ']', first ); first = false ) {
+                result.add( in.consumeNull() ? null : elementReader.read( in ) );
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Read a value of unknown type: objects become maps, arrays lists,
+     * integral numbers longs and other numbers doubles.
+     */
+    private static Object readAny( JsonReader in ) throws IOException {
+        switch ( in.peek() ) {
+            case '{':
+                Map<String, Object> map = new LinkedHashMap<>();
+                in.expect( '{' );
+                for ( boolean first = true; in.hasNext( '}', first ); first = false ) {
+                    String key = in.readString();
+                    in.expect( ':' );
+                    map.put( key, in.consumeNull() ? null : readAny( in ) );
+                }
+                return map;
+            case '[':
+                return ANY_LIST.read( in );
+            case '"':
+                return in.readString();
+            case 't':
+            case 'f':
+                return in.readBoolean();
+            default:
+                return in.readNumber();
+        }
+    }
+
+    /**
+     * Reader for a field of an entity type. The unmarshaller is looked up on
+     * first use, because entities may refer to their own type.
+     */
+    private static final class EntityReader implements ValueReader {
+
+        final Class<?> type;
+        FromJsonUnmarshaller<?> unmarshaller;
+
+        EntityReader( Class<?> type ) {
+            this.type = type;
+        }
+
+        @Override
+        public Object read( JsonReader in ) throws IOException {
+            FromJsonUnmarshaller<?> u = unmarshaller;
+            if ( null == u ) {
+                u = unmarshaller = forType( type );
+            }
+            return u.readObject( in );
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package tojsonmarshaller;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads a value type as a single json token, a string, number or
+ * literal. Register codecs with
+ * {@link JsonCodecs#register(java.lang.Class, tojsonmarshaller.JsonCodec) }.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ * @param <T> the value type
+ */
+public interface JsonCodec<T> {
+
+    /**
+     * Write the value, quoted if it is a string.
+     *
+     * @param value non null value
+     * @param out   sink
+     *
+     * @throws IOException when the sink does
+     */
+    void write( T value, Appendable out ) throws IOException;
+
+    /**
+     * Turn a token back into a value.
+     *
+     * @param token the unescaped content of a string, or the text of a number
+     *              or literal
+     *
+     * @return the value
+     */
+    T read( String token );
+}
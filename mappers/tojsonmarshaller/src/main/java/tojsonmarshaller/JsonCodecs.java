@@ -0,0 +1,220 @@
+package tojsonmarshaller;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Registry of the types that are written as a single json token.
+ *
+ * Strings, the primitives and their wrappers, BigDecimal, BigInteger, the
+ * java.time dates and times, UUID and enums are known from the start. Users
+ * add their own value types with {@link #register }, preferably before the
+ * first marshaller for an entity holding them is created, because
+ * marshallers choose their field writers once.
+ *
+ * The lookup is by exact class and cached in a ClassValue.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+public final class JsonCodecs {
+
+    private JsonCodecs() {
+    }
+
+    private static final Map<Class<?>, JsonCodec<?>> builtIns = builtIns();
+
+    private static final Map<Class<?>, JsonCodec<?>> registered = new ConcurrentHashMap<>();
+
+    private static final ClassValue<JsonCodec<?>> codecs = new ClassValue<>() {
+        @Override
+        protected JsonCodec<?> computeValue( Class<?> type ) {
+            JsonCodec<?> codec = registered.get( type );
+            if ( null == codec ) {
+                codec = builtIns.get( type );
+            }
+            if ( null == codec && Enum.class.isAssignableFrom( type ) ) {
+                codec = enumCodec( type.isEnum() ? type : type.getSuperclass() );
+            }
+            return codec;
+        }
+    };
+
+    /**
+     * Register or replace the codec for a type.
+     *
+     * @param <T>   value type
+     * @param type  the exact class of the values
+     * @param codec to use
+     */
+    public static <T> void register( Class<T> type, JsonCodec<? super T> codec ) {
+        registered.put( type, codec );
+        codecs.remove( type );
+    }
+
+    /**
+     * Remove a registered codec, so that the type gets its built-in codec
+     * again, if it has one. Marshallers created in between keep the codec
+     * they chose.
+     *
+     * @param type the exact class of the values
+     */
+    public static void unregister( Class<?> type ) {
+        registered.remove( type );
+        codecs.remove( type );
+    }
+
+    /**
+     * The codec for a type.
+     *
+     * @param <T>  value type
+     * @param type exact class
+     *
+     * @return the codec or null if the type is not a value type
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <T> JsonCodec<T> codecFor( Class<T> type ) {
+        return (JsonCodec<T>) codecs.get( type );
+    }
+
+    /**
+     * Codec for types whose toString is a valid json number or literal.
+     *
+     * @param <T>    value type
+     * @param parser from token to value
+     *
+     * @return the codec
+     */
+    public static <T> JsonCodec<T> plain( Function<String, ? extends T> parser ) {
+        return new JsonCodec<T>() {
+            @Override
+            public void write( T value, Appendable out ) throws IOException {
+                out.append( value.toString() );
+            }
+
+            @Override
+            public T read( String token ) {
+                return parser.apply( token );
+            }
+        };
+    }
+
+    /**
+     * Codec for types written as their toString, in a json string.
+     *
+     * @param <T>    value type
+     * @param parser from token to value
+     *
+     * @return the codec
+     */
+    public static <T> JsonCodec<T> quoted( Function<String, ? extends T> parser ) {
+        return new JsonCodec<T>() {
+            @Override
+            public void write( T value, Appendable out ) throws IOException {
+                ToJsonMarshaller.writeQuoted( value.toString(), out );
+            }
+
+            @Override
+            public T read( String token ) {
+                return parser.apply( token );
+            }
+        };
+    }
+
+    /**
+     * Whether the type uses the codec it has from the start, so readers may
+     * take a shortcut for it.
+     */
+    static boolean isBuiltIn( Class<?> type ) {
+        JsonCodec<?> codec = codecs.get( type );
+        return null != codec && codec == builtIns.get( type );
+    }
+
+    /**
+     * Enums are written by name, not by toString, so that values of enums
+     * that override toString read back.
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    private static JsonCodec<?> enumCodec( Class<?> enumType ) {
+        return new JsonCodec<Enum<?>>() {
+            @Override
+            public void write( Enum<?> value, Appendable out ) throws
+                    IOException {
+                ToJsonMarshaller.writeQuoted( value.name(), out );
+            }
+
+            @Override
+            public Enum<?> read( String token ) {
+                return Enum.valueOf( (Class) enumType, token );
+            }
+        };
+    }
+
+    /**
+     * Codec for floating point numbers, which rejects NaN and the
+     * infinities, because json has no token for them.
+     */
+    private static <T extends Number> JsonCodec<T> finite(
+            Function<String, ? extends T> parser ) {
+        return new JsonCodec<T>() {
+            @Override
+            public void write( T value, Appendable out ) throws IOException {
+                if ( !Double.isFinite( value.doubleValue() ) ) {
+                    throw new IllegalArgumentException( value
+                            + " cannot be written as JSON number" );
+                }
+                out.append( value.toString() );
+            }
+
+            @Override
+            public T read( String token ) {
+                return parser.apply( token );
+            }
+        };
+    }
+
+    private static Map<Class<?>, JsonCodec<?>> builtIns() {
+        JsonCodec<Integer> ints = plain( Integer::valueOf );
+        JsonCodec<Long> longs = plain( Long::valueOf );
+        JsonCodec<Short> shorts = plain( Short::valueOf );
+        JsonCodec<Byte> bytes = plain( Byte::valueOf );
+        JsonCodec<Double> doubles = finite( Double::valueOf );
+        JsonCodec<Float> floats = finite( Float::valueOf );
+        JsonCodec<Boolean> booleans = plain( Boolean::valueOf );
+        JsonCodec<Character> chars = quoted( token -> token.charAt( 0 ) );
+        return Map.ofEntries(
+                Map.entry( String.class, quoted( Function.identity() ) ),
+                Map.entry( Integer.class, ints ),
+                Map.entry( int.class, ints ),
+                Map.entry( Long.class, longs ),
+                Map.entry( long.class, longs ),
+                Map.entry( Short.class, shorts ),
+                Map.entry( short.class, shorts ),
+                Map.entry( Byte.class, bytes ),
+                Map.entry( byte.class, bytes ),
+                Map.entry( Double.class, doubles ),
+                Map.entry( double.class, doubles ),
+                Map.entry( Float.class, floats ),
+                Map.entry( float.class, floats ),
+                Map.entry( Boolean.class, booleans ),
+                Map.entry( boolean.class, booleans ),
+                Map.entry( Character.class, chars ),
+                Map.entry( char.class, chars ),
+                Map.entry( BigDecimal.class, plain( BigDecimal::new ) ),
+                Map.entry( BigInteger.class, plain( BigInteger::new ) ),
+                Map.entry( LocalDate.class, quoted( LocalDate::parse ) ),
+                Map.entry( LocalDateTime.class, quoted( LocalDateTime::parse ) ),
+                Map.entry( LocalTime.class, quoted( LocalTime::parse ) ),
+                Map.entry( Instant.class, quoted( Instant::parse ) ),
+                Map.entry( UUID.class, quoted( UUID::fromString ) )
+        );
+    }
+}
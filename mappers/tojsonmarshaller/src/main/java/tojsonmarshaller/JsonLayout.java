@@ -0,0 +1,101 @@
+package tojsonmarshaller;
+
+import java.io.IOException;
+
+/**
+ * The white space between the tokens. {@link #COMPACT} has none and is the
+ * default. {@link #pretty(int) } puts every field and element on its own line,
+ * indented per nesting level; {@code pretty( 0 )} is the layout of earlier
+ * versions. Primitive arrays stay on one line in both.
+ *
+ * A layout also says how byte arrays are written, as an array of numbers or
+ * as one Base64 string, see {@link #withByteArraysAsBase64(boolean)}.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+public final class JsonLayout {
+
+    /**
+     * No white space at all.
+     */
+    public static final JsonLayout COMPACT = new JsonLayout( -1 );
+
+    private static final String SPACES = "                                ";
+
+    /**
+     * Indent per level, negative for compact.
+     */
+    private final int indent;
+    private final boolean byteArraysAsBase64;
+
+    private JsonLayout( int indent ) {
+        this( indent, false );
+    }
+
+    private JsonLayout( int indent, boolean byteArraysAsBase64 ) {
+        this.indent = indent;
+        this.byteArraysAsBase64 = byteArraysAsBase64;
+    }
+
+    /**
+     * One field or element per line.
+     *
+     * @param indent number of spaces per nesting level
+     *
+     * @return the layout
+     */
+    public static JsonLayout pretty( int indent ) {
+        if ( indent < 0 ) {
+            throw new IllegalArgumentException( "negative indent " + indent );
+        }
+        return new JsonLayout( indent );
+    }
+
+    /**
+     * The same layout, with byte arrays written as Base64 encoded string or
+     * as array of numbers. {@link FromJsonUnmarshaller} reads both forms.
+     *
+     * @param asBase64 true for Base64
+     *
+     * @return the layout
+     */
+    public JsonLayout withByteArraysAsBase64( boolean asBase64 ) {
+        return new JsonLayout( indent, asBase64 );
+    }
+
+    boolean byteArraysAsBase64() {
+        return byteArraysAsBase64;
+    }
+
+    /**
+     * Start a new line at the given nesting depth, if this layout has lines.
+     *
+     * @param out   sink
+     * @param depth nesting level
+     *
+     * @throws IOException when the sink does
+     */
+    void newline( Appendable out, int depth ) throws IOException {
+        if ( indent < 0 ) {
+            return;
+        }
+        out.append( '\n' );
+        for ( int n = indent * depth; n > 0; n -= SPACES.length() ) {
+            out.append( SPACES, 0, Math.min( n, SPACES.length() ) );
+        }
+    }
+
+    /**
+     * Separator between the elements of a primitive array.
+     */
+    String inlineSeparator() {
+        return indent < 0 ? "," : ", ";
+    }
+
+    @Override
+    public String toString() {
+        String name = indent < 0 ? "COMPACT" : "pretty(" + indent + ")";
+        return byteArraysAsBase64 ? name + ".withByteArraysAsBase64(true)"
+                : name;
+    }
+}
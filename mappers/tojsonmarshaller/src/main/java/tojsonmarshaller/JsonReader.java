@@ -0,0 +1,426 @@
+package tojsonmarshaller;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pull tokenizer for json text. The reader works on its own character buffer
+ * and reuses one StringBuilder for strings and numbers, so the only objects
+ * created while reading are the values themselves.
+ *
+ * Syntax errors are reported as IllegalArgumentException, with the offset in
+ * the input.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+final class JsonReader {
+
+    private final Reader in;
+    private final char[] buffer = new char[ 8192 ];
+    private int pos;
+    private int limit;
+    private long offset;
+    private final StringBuilder text = new StringBuilder();
+    private Map<Integer, Object> references;
+
+    JsonReader( Reader in ) {
+        this.in = in;
+    }
+
+    /**
+     * Skip white space and look at the next character without consuming it.
+     *
+     * @return the next character or -1 at the end of the input
+     *
+     * @throws IOException when the underlying reader does
+     */
+    int peek() throws IOException {
+        while ( true ) {
+            if ( pos == limit && !fill() ) {
+                return -1;
+            }
+            char c = buffer[ pos ];
+            if ( c != ' ' && c != '\n' && c != '\r' && c != '\t' ) {
+                return c;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Consume the expected character, after white space.
+     *
+     * @param expected character
+     *
+     * @throws IOException when the underlying reader does
+     */
+    void expect( char expected ) throws IOException {
+        int c = peek();
+        if ( c != expected ) {
+            throw error( "expected '" + expected + "' but found "
+                    + describe( c ) );
+        }
+        pos++;
+    }
+
+    /**
+     * Consume the character if it is next.
+     *
+     * @param c character
+     *
+     * @return true if consumed
+     *
+     * @throws IOException when the underlying reader does
+     */
+    boolean consume( char c ) throws IOException {
+        if ( peek() == c ) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume a null literal if it is next.
+     *
+     * @return true if a null was consumed
+     *
+     * @throws IOException when the underlying reader does
+     */
+    boolean consumeNull() throws IOException {
+        if ( peek() != 'n' ) {
+            return false;
+        }
+        literal( "null" );
+        return true;
+    }
+
+    /**
+     * Start the next element of an array or object, having read the opening
+     * bracket.
+     *
+     * @param close the closing bracket
+     * @param first true for the first element
+     *
+     * @return true if there is a next element, false if the close was read
+     *
+     * @throws IOException when the underlying reader does
+     */
+    boolean hasNext( char close, boolean first ) throws IOException {
+        if ( consume( close ) ) {
+            return false;
+        }
+        if ( !first ) {
+            expect( ',' );
+        }
+        return true;
+    }
+
+    String readString() throws IOException {
+        expect( '"' );
+        text.setLength( 0 );
+        while ( true ) {
+            char c = next();
+            if ( c == '"' ) {
+                return text.toString();
+            }
+            if ( c != '\\' ) {
+                text.append( c );
+                continue;
+            }
+            c = next();
+            switch ( c ) {
+                case '"':
+                case '\\':
+                case '/':
+                    text.append( c );
+                    break;
+                case 'b':
+                    text.append( '\b' );
+                    break;
+                case 'f':
+                    text.append( '\f' );
+                    break;
+                case 'n':
+                    text.append( '\n' );
+                    break;
+                case 'r':
+                    text.append( '\r' );
+                    break;
+                case 't':
+                    text.append( '\t' );
+                    break;
+                case 'u':
+                    int code = 0;
+                    for ( int i = 0; i < 4; i++ ) {
+                        int digit = Character.digit( next(), 16 );
+                        if ( digit < 0 ) {
+                            throw error( "bad unicode escape" );
+                        }
+                        code = ( code << 4 ) + digit;
+                    }
+                    text.append( (char) code );
+                    break;
+                default:
+                    throw error( "bad escape \\" + c );
+            }
+        }
+    }
+
+    /**
+     * Read an integral number without going through a String. The digits are
+     * accumulated negatively, so that {@link Long#MIN_VALUE} fits.
+     *
+     * @return the value
+     *
+     * @throws IOException              when the underlying reader does
+     * @throws IllegalArgumentException when the number is not integral or
+     * does not fit in a long
+     */
+    long readLong() throws IOException {
+        int c = peek();
+        boolean negative = c == '-';
+        if ( negative ) {
+            pos++;
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        int digits = 0;
+        while ( ( c = peekRaw() ) >= '0' && c <= '9' ) {
+            int digit = c - '0';
+            if ( result < multiplyLimit || result * 10 < limit + digit ) {
+                throw error( "number out of range" );
+            }
+            pos++;
+            result = result * 10 - digit;
+            digits++;
+        }
+        if ( digits == 0 || c == '.' || c == 'e' || c == 'E' ) {
+            throw error( "expected an integral number" );
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Read an integral number within bounds.
+     *
+     * @param min smallest allowed value
+     * @param max largest allowed value
+     *
+     * @return the value
+     *
+     * @throws IOException              when the underlying reader does
+     * @throws IllegalArgumentException when the number is not integral or out
+     * of bounds
+     */
+    int readInt( int min, int max ) throws IOException {
+        long value = readLong();
+        if ( value < min || value > max ) {
+            throw error( "number " + value + " out of range [" + min + ","
+                    + max + "]" );
+        }
+        return (int) value;
+    }
+
+    double readDouble() throws IOException {
+        String number = numberText();
+        try {
+            return Double.parseDouble( number );
+        } catch ( NumberFormatException ex ) {
+            throw error( "expected a number but found '" + number + "'" );
+        }
+    }
+
+    /**
+     * Read a number of unknown type.
+     *
+     * @return a Long for integral numbers, a Double otherwise
+     *
+     * @throws IOException when the underlying reader does
+     */
+    Number readNumber() throws IOException {
+        String number = numberText();
+        try {
+            if ( number.indexOf( '.' ) < 0 && number.indexOf( 'e' ) < 0
+                    && number.indexOf( 'E' ) < 0 ) {
+                return Long.valueOf( number );
+            }
+            return Double.valueOf( number );
+        } catch ( NumberFormatException ex ) {
+            throw error( "expected a number but found '" + number + "'" );
+        }
+    }
+
+    private String numberText() throws IOException {
+        peek();
+        text.setLength( 0 );
+        int c;
+        while ( ( c = peekRaw() ) >= 0 && isNumberChar( (char) c ) ) {
+            pos++;
+            text.append( (char) c );
+        }
+        return text.toString();
+    }
+
+    /**
+     * Read a single token as text: the content of a string, or the text of a
+     * number or literal.
+     *
+     * @return the token
+     *
+     * @throws IOException when the underlying reader does
+     */
+    String readToken() throws IOException {
+        switch ( peek() ) {
+            case '"':
+                return readString();
+            case 't':
+            case 'f':
+                return Boolean.toString( readBoolean() );
+            default:
+                return numberText();
+        }
+    }
+
+    boolean readBoolean() throws IOException {
+        if ( peek() == 't' ) {
+            literal( "true" );
+            return true;
+        }
+        literal( "false" );
+        return false;
+    }
+
+    /**
+     * Skip the next value, whatever it is.
+     *
+     * @throws IOException when the underlying reader does
+     */
+    void skipValue() throws IOException {
+        int c = peek();
+        switch ( c ) {
+            case '{':
+                pos++;
+                for ( boolean first = true; hasNext( '}', first ); first = false ) {
+                    readString();
+                    expect( ':' );
+                    skipValue();
+                }
+                break;
+            case '[':
+                pos++;
+                for ( boolean first = true; hasNext( ']', first ); first = false ) {
+                    skipValue();
+                }
+                break;
+            case '"':
+                readString();
+                break;
+            case 't':
+            case 'f':
+                readBoolean();
+                break;
+            case 'n':
+                literal( "null" );
+                break;
+            default:
+                readDouble();
+        }
+    }
+
+    /**
+     * Check that nothing but white space follows.
+     *
+     * @throws IOException when the underlying reader does
+     */
+    void expectEnd() throws IOException {
+        int c = peek();
+        if ( c != -1 ) {
+            throw error( "unexpected " + describe( c ) + " after value" );
+        }
+    }
+
+    /**
+     * Remember the entity read with the given {@code "@id"}.
+     *
+     * @param id     of the entity
+     * @param entity read
+     */
+    void define( int id, Object entity ) {
+        if ( null == references ) {
+            references = new HashMap<>();
+        }
+        references.put( id, entity );
+    }
+
+    /**
+     * Look up the entity of a {@code "@ref"}.
+     *
+     * @param id referred to
+     *
+     * @return the entity
+     *
+     * @throws IllegalArgumentException if the entity has not been read
+     * completely
+     */
+    Object reference( int id ) {
+        Object entity = null == references ? null : references.get( id );
+        if ( null == entity ) {
+            throw error( "unresolved reference " + id );
+        }
+        return entity;
+    }
+
+    IllegalArgumentException error( String message ) {
+        return new IllegalArgumentException( message + " at offset "
+                + ( offset - limit + pos ) );
+    }
+
+    private void literal( String literal ) throws IOException {
+        for ( int i = 0; i < literal.length(); i++ ) {
+            if ( peekRaw() != literal.charAt( i ) ) {
+                throw error( "expected " + literal );
+            }
+            pos++;
+        }
+    }
+
+    private static boolean isNumberChar( char c ) {
+        return ( c >= '0' && c <= '9' ) || c == '-' || c == '+' || c == '.'
+                || c == 'e' || c == 'E';
+    }
+
+    private char next() throws IOException {
+        int c = peekRaw();
+        if ( c < 0 ) {
+            throw error( "unexpected end of input" );
+        }
+        pos++;
+        return (char) c;
+    }
+
+    private int peekRaw() throws IOException {
+        if ( pos == limit && !fill() ) {
+            return -1;
+        }
+        return buffer[ pos ];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read( buffer, 0, buffer.length );
+        if ( n <= 0 ) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        offset += n;
+        return true;
+    }
+
+    private static String describe( int c ) {
+        return c < 0 ? "end of input" : "'" + (char) c + "'";
+    }
+}
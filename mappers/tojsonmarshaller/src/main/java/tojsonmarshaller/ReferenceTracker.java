@@ -0,0 +1,62 @@
+package tojsonmarshaller;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Identity based bookkeeping of the entities written in one marshalling run.
+ *
+ * Without ids only the entities on the current path are kept, which is
+ * enough to detect a cycle. With ids every entity written gets a number and
+ * is kept for the rest of the run, so a second visit becomes a reference.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+final class ReferenceTracker {
+
+    private final Map<Object, Integer> ids = new IdentityHashMap<>();
+    private final boolean writeIds;
+    private int lastId;
+
+    ReferenceTracker( boolean writeIds ) {
+        this.writeIds = writeIds;
+    }
+
+    boolean writesIds() {
+        return writeIds;
+    }
+
+    /**
+     * Start writing an entity.
+     *
+     * @param entity to write
+     *
+     * @return the new id of the entity, or minus the id of an entity written
+     * before
+     *
+     * @throws IllegalArgumentException on a cycle when not writing ids
+     */
+    int enter( Object entity ) {
+        Integer id = ids.get( entity );
+        if ( null != id ) {
+            if ( !writeIds ) {
+                throw new IllegalArgumentException( "cycle through "
+                        + entity.getClass().getName() );
+            }
+            return -id;
+        }
+        ids.put( entity, ++lastId );
+        return lastId;
+    }
+
+    /**
+     * Done writing an entity.
+     *
+     * @param entity written
+     */
+    void exit( Object entity ) {
+        if ( !writeIds ) {
+            ids.remove( entity );
+        }
+    }
+}
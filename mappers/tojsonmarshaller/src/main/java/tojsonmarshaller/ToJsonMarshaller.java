@@ -1,17 +1,26 @@
 package tojsonmarshaller;
 
-import genericmapper.FieldPair;
 import genericmapper.Mapper;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
-import java.util.Map;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Function;
-import static java.util.stream.Collectors.joining;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Stream;
 
 /**
@@ -21,34 +30,111 @@ import java.util.stream.Stream;
  */
 public class ToJsonMarshaller<E> {
 
-    /**
-     * Set of types that are considered atomic, so that an (optionally quoted)
-     * toString suffices.
-     */
-    static final Set<Class<?>> atomSet = Set.of(
-            String.class,
-            Integer.class,
-            int.class,
-            Double.class,
-            double.class,
-            Long.class,
-            long.class,
-            Boolean.class,
-            boolean.class,
-            Short.class,
-            short.class,
-            Float.class,
-            float.class,
-            LocalDate.class,
-            LocalDateTime.class
-    );
-
     final Class<E> entityType;
     final Mapper<E,Object> mapper;
 
+    /**
+     * The {@code "name":} part of each field, in deconstruct order.
+     */
+    final String[] fieldPrefixes;
+
+    /**
+     * Value writer per field, chosen from the declared field type.
+     */
+    final FieldWriter[] fieldWriters;
+
+    /**
+     * Per thread field value buffer, shared by all marshallers and borrowed
+     * for the duration of one writeFields. A nested entity finds it taken
+     * and uses a fresh array. It grows to the widest entity written on the
+     * thread.
+     */
+    private static final ThreadLocal<Object[]> fieldValueBuffer
+            = new ThreadLocal<>();
+
     private ToJsonMarshaller( Class<E> entityType ) {
         this.entityType = entityType;
         mapper = Mapper.mapperFor( entityType );
+        List<Field> fields = mapper.entityFields();
+        fieldPrefixes = new String[ fields.size() ];
+        fieldWriters = new FieldWriter[ fields.size() ];
+        for ( int i = 0; i < fieldPrefixes.length; i++ ) {
+            Field f = fields.get( i );
+            fieldPrefixes[ i ] = quote( f.getName() ) + ':';
+            fieldWriters[ i ] = fieldWriter( f.getType() );
+        }
+    }
+
+    /**
+     * Writes one non null field value.
+     */
+    @FunctionalInterface
+    interface FieldWriter {
+
+        void write( Object value, Appendable out, WriteContext context )
+                throws IOException;
+    }
+
+    static final FieldWriter PRIMITIVE_ARRAY = ( v, out, c )
+            -> writePrimitiveArray( v, out, c.layout );
+    static final FieldWriter ANY = ToJsonMarshaller::write;
+
+    /**
+     * Select the writer for a declared field type. Value types use their
+     * {@link JsonCodec}, primitive arrays get a typed loop. Entity typed
+     * fields get a writer that resolves the marshaller once. Everything else,
+     * like arrays, collections, optionals and fields of type Object, takes
+     * the general route.
+     *
+     * @param type declared type
+     *
+     * @return the writer
+     */
+    static FieldWriter fieldWriter( Class<?> type ) {
+        @SuppressWarnings( "unchecked" )
+        JsonCodec<Object> codec = (JsonCodec<Object>) JsonCodecs
+                .codecFor( type );
+        if ( null != codec ) {
+            return ( v, out, c ) -> codec.write( v, out );
+        }
+        if ( type.isArray() && type.getComponentType().isPrimitive() ) {
+            return PRIMITIVE_ARRAY;
+        }
+        if ( type.isArray() || type.isInterface() || type.isPrimitive()
+                || Object.class == type || Optional.class == type
+                || Collection.class.isAssignableFrom( type ) ) {
+            return ANY;
+        }
+        return new EntityWriter( type );
+    }
+
+    /**
+     * Writer for a field of an entity type. The marshaller is looked up on
+     * first use and not in the constructor, because entities may refer to
+     * their own type. Values of a sub type go the general route.
+     */
+    private static final class EntityWriter implements FieldWriter {
+
+        final Class<?> type;
+        ToJsonMarshaller<Object> marshaller;
+
+        EntityWriter( Class<?> type ) {
+            this.type = type;
+        }
+
+        @Override
+        public void write( Object value, Appendable out, WriteContext context )
+                throws IOException {
+            if ( value.getClass() != type ) {
+                ToJsonMarshaller.write( value, out, context );
+                return;
+            }
+            ToJsonMarshaller<Object> m = marshaller;
+            if ( null == m ) {
+                m = marshaller = marshallerOf( type );
+            }
+            m.writeObject( value, out, context );
+        }
     }
 
     public static ToJsonMarshaller forEntity( Object e ) {
@@ -57,6 +143,16 @@ public class ToJsonMarshaller<E> {
 
     private static final ConcurrentMap<Class<?>, ToJsonMarshaller<?>> cache = new ConcurrentHashMap<>();
 
+    /**
+     * The marshaller for a value type, typed so that it accepts the value.
+     * The cast is safe as long as the caller only passes instances of type,
+     * which both callers check with getClass.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static ToJsonMarshaller<Object> marshallerOf( Class<?> type ) {
+        return (ToJsonMarshaller<Object>) forType( type );
+    }
+
     public static ToJsonMarshaller forType( Class<?> clz ) {
         return cache
                 .computeIfAbsent( clz, ( c ) -> new ToJsonMarshaller<>( c ) );
@@ -69,98 +165,663 @@ public class ToJsonMarshaller<E> {
         } else if ( ( value instanceof Number ) || ( value instanceof Boolean ) ) {
             quotedValue = value.toString();
         } else {
-            quotedValue = '"' + value.toString() + '"';
+            quotedValue = quote( value.toString() );
         }
-        return '"' + key + "\":" + quotedValue;
+        return quote( key ) + ':' + quotedValue;
     }
 
-    private static String pairToString( FieldPair fp ) {
-        Object value = fp.value();
-        String valueString;
-        if ( atomSet.contains( value.getClass() ) ) {
-            return pairToString( fp.key(), fp.value() );
-        } else {
-            valueString = ToJsonMarshaller.asJson( value );
-            return "\"" + fp.key() + "\":" + valueString;
+    /**
+     * Write the compact json representation of the entity to a string.
+     *
+     * @param entity to convert
+     *
+     * @return the json string
+     */
+    public static String asJson( Object entity ) {
+        return asJson( entity, JsonLayout.COMPACT );
+    }
+
+    /**
+     * Write the json representation of the entity to a string.
+     *
+     * @param entity to convert
+     * @param layout compact or pretty
+     *
+     * @return the json string
+     */
+    public static String asJson( Object entity, JsonLayout layout ) {
+        StringBuilder result = new StringBuilder();
+        try {
+            writeJson( entity, result, layout );
+        } catch ( IOException ex ) {
+            // a StringBuilder does not throw
+            throw new UncheckedIOException( ex );
         }
+        return result.toString();
     }
 
-    public static String asJson( Object entity ) {
-        if ( entity == null ) {
-            return "null";
+    /**
+     * Write the compact json representation of the entity to a byte stream,
+     * UTF-8 encoded. The output is buffered and flushed at the end, but the stream
+     * is not closed.
+     *
+     * @param entity to convert
+     * @param out    to write to
+     *
+     * @throws IOException when the stream does
+     */
+    public static void writeJson( Object entity, OutputStream out ) throws
+            IOException {
+        Writer writer = new BufferedWriter( new OutputStreamWriter( out,
+                StandardCharsets.UTF_8 ) );
+        writeJson( entity, writer );
+        writer.flush();
+    }
+
+    /**
+     * Write the compact json representation of the entity token by token to
+     * the sink. Nothing is built up in between, so the memory used does not
+     * depend on the size of the document. Wrap unbuffered sinks in a buffered
+     * one.
+     *
+     * @param entity to convert
+     * @param out    to write to
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJson( Object entity, Appendable out ) throws
+            IOException {
+        writeJson( entity, out, JsonLayout.COMPACT );
+    }
+
+    /**
+     * Stream the json representation of the entity in the given layout.
+     *
+     * @param entity to convert
+     * @param out    to write to
+     * @param layout compact or pretty
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJson( Object entity, Appendable out,
+            JsonLayout layout ) throws IOException {
+        write( entity, out, new WriteContext( layout, null, 0 ) );
+    }
+
+    /**
+     * Write the entities as JSON Lines: one compact json value per line, each
+     * line ended by a newline.
+     *
+     * @param entities to write
+     * @param out      to write to
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJsonLines( Iterator<?> entities, Appendable out )
+            throws IOException {
+        WriteContext context = new WriteContext( JsonLayout.COMPACT, null, 0 );
+        while ( entities.hasNext() ) {
+            write( entities.next(), out, context );
+            out.append( '\n' );
         }
-        if ( entity instanceof String ) {
-            return "\"" + String.class.cast( entity ) + "\"";
+    }
+
+    /**
+     * Write the entities of a stream as JSON Lines.
+     *
+     * @param entities to write
+     * @param out      to write to
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJsonLines( Stream<?> entities, Appendable out )
+            throws IOException {
+        writeJsonLines( entities.iterator(), out );
+    }
+
+    /**
+     * Write the entities of a stream as JSON Lines to a byte stream, UTF-8
+     * encoded and buffered. The stream is flushed, not closed.
+     *
+     * @param entities to write
+     * @param out      to write to
+     *
+     * @throws IOException when the stream does
+     */
+    public static void writeJsonLines( Stream<?> entities, OutputStream out )
+            throws IOException {
+        Writer writer = new BufferedWriter( new OutputStreamWriter( out,
+                StandardCharsets.UTF_8 ) );
+        writeJsonLines( entities.iterator(), writer );
+        writer.flush();
+    }
+
+    /**
+     * How entities that are reached more than once are written.
+     */
+    public enum References {
+        /**
+         * Write shared entities every time they are reached, but fail with
+         * an IllegalArgumentException on a cycle instead of overflowing the
+         * stack.
+         */
+        CHECK_CYCLES,
+        /**
+         * Give every entity an {@code "@id"} and write an entity that was
+         * written before as {@code {"@ref":id}}. Cycles and shared entities
+         * are both written once. {@link FromJsonUnmarshaller} resolves
+         * references to shared entities.
+         */
+        IDS
+    }
+
+    /**
+     * Convert an entity graph that may contain shared entities or cycles to
+     * compact json. Entities are tracked by identity; collections and arrays
+     * are not.
+     *
+     * @param entity     to convert
+     * @param references how to deal with entities reached more than once
+     *
+     * @return the json string
+     */
+    public static String asJson( Object entity, References references ) {
+        StringBuilder result = new StringBuilder();
+        try {
+            writeJson( entity, result, references );
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+        return result.toString();
+    }
+
+    /**
+     * Stream an entity graph that may contain shared entities or cycles.
+     *
+     * @param entity     to convert
+     * @param out        to write to
+     * @param references how to deal with entities reached more than once
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJson( Object entity, Appendable out,
+            References references ) throws IOException {
+        writeJson( entity, out, JsonLayout.COMPACT, references );
+    }
+
+    /**
+     * Stream an entity graph that may contain shared entities or cycles in
+     * the given layout.
+     *
+     * @param entity     to convert
+     * @param out        to write to
+     * @param layout     compact or pretty
+     * @param references how to deal with entities reached more than once
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJson( Object entity, Appendable out,
+            JsonLayout layout, References references ) throws IOException {
+        write( entity, out, new WriteContext( layout, new ReferenceTracker(
+                references == References.IDS ), 0 ) );
+    }
+
+    /**
+     * Write any value.
+     */
+    static void write( Object entity, Appendable out, WriteContext context )
+            throws IOException {
+        if ( entity == null ) {
+            out.append( "null" );
+            return;
         }
         Class<?> entityType = entity.getClass();
-        if ( atomSet.contains( entityType ) ) {
-            return atomToString( entity );
+        @SuppressWarnings( "unchecked" )
+        JsonCodec<Object> codec = (JsonCodec<Object>) JsonCodecs
+                .codecFor( entityType );
+        if ( null != codec ) {
+            codec.write( entity, out );
+            return;
+        }
+        if ( entity instanceof Optional ) {
+            write( ( (Optional<?>) entity ).orElse( null ), out, context );
+            return;
         }
 
         if ( !entityType.isArray() && !( entity instanceof Collection ) ) {
-
-            return "{\n" + ToJsonMarshaller.forType( entityType )
-                    .simpleToString(
-                            entity )
-                    + "\n}";
+            marshallerOf( entityType ).writeObject( entity, out, context );
+            return;
         }
 
         if ( entityType.isArray() ) {
             Class<?> componentType = entityType.getComponentType();
             if ( componentType.isPrimitive() ) {
-                return primitiveArrayString( componentType, entity );
+                writePrimitiveArray( entity, out, context.layout );
+                return;
             }
-            Object[] array = Object[].class.cast( entity );
-            var stream = Stream.of( array );
-            return streamToJSon( stream );
+            writeElements( Arrays.asList( Object[].class.cast( entity ) ), out,
+                    context );
+            return;
         }
 
         Collection<?> collection = (Collection<?>) entity;
         if ( collection.isEmpty() ) {
-            return "[]";
+            out.append( "[]" );
+            return;
+        }
+        writeElements( collection, out, context );
+    }
+
+    private static void writeElements( Iterable<?> elements, Appendable out,
+            WriteContext context ) throws IOException {
+        context.open( '[', out );
+        boolean first = true;
+        for ( Object element : elements ) {
+            if ( !first ) {
+                context.separate( out );
+            }
+            write( element, out, context );
+            first = false;
         }
-        var stream = collection.stream();
-        return streamToJSon( stream );
+        context.close( ']', out );
     }
 
-    private static String streamToJSon(
-            Stream<?> stream ) {
-        return "[\n" + stream.map( e -> ToJsonMarshaller.asJson( e ) )
-                .collect( joining( ",\n" ) ) + "\n]";
+    /**
+     * Collections and object arrays with fewer elements are marshalled
+     * sequentially, also in parallel mode.
+     */
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Number of elements per parallel task.
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Parallel variant of {@link #asJson(java.lang.Object) }.
+     *
+     * @param entity to convert
+     *
+     * @return the json string, equal to that of asJson
+     */
+    public static String asJsonParallel( Object entity ) {
+        StringBuilder result = new StringBuilder();
+        try {
+            writeJsonParallel( entity, result, JsonLayout.COMPACT );
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+        return result.toString();
     }
 
-    final String simpleToString( E entity ) {
-        return mapper.stream( entity )
-                .filter( fp -> !fp.hasNullValue() )
-                .map( ToJsonMarshaller::pairToString )
-                .collect( joining( ",\n" ) );
+    /**
+     * Parallel variant of {@link #writeJson(java.lang.Object, java.lang.Appendable)
+     * }, compact.
+     *
+     * @param entity to convert
+     * @param out    to write to
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJsonParallel( Object entity, Appendable out )
+            throws IOException {
+        writeJsonParallel( entity, out, JsonLayout.COMPACT );
     }
 
-    static String atomToString( Object value ) {
-        if ( value == null ) {
-            return "null";
+    /**
+     * Write a large collection or object array in parallel. The elements are
+     * split in chunks of {@link #CHUNK_SIZE}, each chunk is written to its own
+     * buffer on the common fork join pool, and the buffers are appended to
+     * the sink in order as they become available. Anything else, and
+     * collections below {@link #PARALLEL_THRESHOLD}, is written sequentially.
+     * Only the top level is split, nested collections are written by the
+     * task that holds them.
+     *
+     * @param entity to convert
+     * @param out    to write to
+     * @param layout compact or pretty
+     *
+     * @throws IOException when the sink does
+     */
+    public static void writeJsonParallel( Object entity, Appendable out,
+            JsonLayout layout ) throws IOException {
+        Object[] elements = null;
+        if ( entity instanceof Collection ) {
+            elements = ( (Collection<?>) entity ).toArray();
+        } else if ( entity instanceof Object[] ) {
+            elements = (Object[]) entity;
+        }
+        if ( null == elements || elements.length < PARALLEL_THRESHOLD ) {
+            writeJson( entity, out, layout );
+            return;
+        }
+        Object[] all = elements;
+        List<ForkJoinTask<StringBuilder>> chunks = new ArrayList<>();
+        for ( int from = 0; from < all.length; from += CHUNK_SIZE ) {
+            int start = from;
+            int end = Math.min( from + CHUNK_SIZE, all.length );
+            chunks.add( ForkJoinPool.commonPool().submit( () -> writeChunk(
+                    all, start, end, layout ) ) );
+        }
+        try {
+            WriteContext context = new WriteContext( layout, null, 0 );
+            context.open( '[', out );
+            for ( int c = 0; c < chunks.size(); c++ ) {
+                if ( c > 0 ) {
+                    context.separate( out );
+                }
+                out.append( chunks.get( c ).join() );
+            }
+            context.close( ']', out );
+        } finally {
+            chunks.forEach( chunk -> chunk.cancel( false ) );
+        }
+    }
+
+    private static StringBuilder writeChunk( Object[] elements, int start,
+            int end, JsonLayout layout ) {
+        StringBuilder chunk = new StringBuilder();
+        WriteContext context = new WriteContext( layout, null, 1 );
+        try {
+            for ( int i = start; i < end; i++ ) {
+                if ( i > start ) {
+                    context.separate( chunk );
+                }
+                write( elements[ i ], chunk, context );
+            }
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+        return chunk;
+    }
+
+    /**
+     * Write the entity as json object. With a tracker, an entity seen before
+     * is written as reference or rejected as cycle.
+     */
+    final void writeObject( E entity, Appendable out, WriteContext context )
+            throws IOException {
+        ReferenceTracker references = context.references;
+        if ( null == references ) {
+            context.open( '{', out );
+            writeFields( entity, out, context, true );
+            context.close( '}', out );
+            return;
+        }
+        int id = references.enter( entity );
+        if ( id < 0 ) {
+            out.append( "{\"@ref\":" ).append( Integer.toString( -id ) )
+                    .append( '}' );
+            return;
+        }
+        context.open( '{', out );
+        boolean first = true;
+        if ( references.writesIds() ) {
+            out.append( "\"@id\":" ).append( Integer.toString( id ) );
+            first = false;
+        }
+        writeFields( entity, out, context, first );
+        context.close( '}', out );
+        references.exit( entity );
+    }
+
+    /**
+     * Write the non null fields of the entity as key value pairs, in
+     * deconstruct order.
+     */
+    final void writeFields( E entity, Appendable out, WriteContext context,
+            boolean first ) throws IOException {
+        Object[] fieldValues = fieldValueBuffer.get();
+        fieldValueBuffer.set( null );
+        if ( fieldValues == null || fieldValues.length < fieldPrefixes.length ) {
+            fieldValues = new Object[ fieldPrefixes.length ];
+        }
+        try {
+            mapper.deconstructInto( entity, fieldValues );
+            for ( int i = 0; i < fieldPrefixes.length; i++ ) {
+                if ( fieldValues[ i ] == null ) {
+                    continue;
+                }
+                if ( !first ) {
+                    context.separate( out );
+                }
+                out.append( fieldPrefixes[ i ] );
+                fieldWriters[ i ].write( fieldValues[ i ], out, context );
+                first = false;
+            }
+        } finally {
+            Arrays.fill( fieldValues, 0, fieldPrefixes.length, null );
+            fieldValueBuffer.set( fieldValues );
+        }
+    }
+
+    /**
+     * Index of the first character that must be escaped in a json string.
+     *
+     * @param s to scan
+     *
+     * @return the index or -1 if the string can be copied as is
+     */
+    static int firstToEscape( CharSequence s ) {
+        for ( int i = 0; i < s.length(); i++ ) {
+            char c = s.charAt( i );
+            if ( c < ' ' || c == '"' || c == '\\' ) {
+                return i;
+            }
         }
-        if ( ( value instanceof Number ) || ( value instanceof Boolean ) ) {
-            return value.toString();
+        return -1;
+    }
+
+    /**
+     * Quote and, where needed, escape a string.
+     *
+     * @param s to quote
+     *
+     * @return the json string
+     */
+    static String quote( String s ) {
+        if ( firstToEscape( s ) < 0 ) {
+            return '"' + s + '"';
+        }
+        StringBuilder result = new StringBuilder( s.length() + 8 );
+        try {
+            writeQuoted( s, result );
+        } catch ( IOException ex ) {
+            throw new UncheckedIOException( ex );
+        }
+        return result.toString();
+    }
+
+    /**
+     * Write a string quoted and escaped. Clean strings are copied in one go,
+     * otherwise the clean runs between the special characters are.
+     *
+     * @param s   to write
+     * @param out sink
+     *
+     * @throws IOException when the sink does
+     */
+    static void writeQuoted( CharSequence s, Appendable out ) throws
+            IOException {
+        out.append( '"' );
+        int i = firstToEscape( s );
+        if ( i < 0 ) {
+            out.append( s ).append( '"' );
+            return;
+        }
+        int start = 0;
+        for ( ; i < s.length(); i++ ) {
+            char c = s.charAt( i );
+            if ( c >= ' ' && c != '"' && c != '\\' ) {
+                continue;
+            }
+            out.append( s, start, i );
+            start = i + 1;
+            switch ( c ) {
+                case '"':
+                    out.append( "\\\"" );
+                    break;
+                case '\\':
+                    out.append( "\\\\" );
+                    break;
+                case '\n':
+                    out.append( "\\n" );
+                    break;
+                case '\r':
+                    out.append( "\\r" );
+                    break;
+                case '\t':
+                    out.append( "\\t" );
+                    break;
+                case '\b':
+                    out.append( "\\b" );
+                    break;
+                case '\f':
+                    out.append( "\\f" );
+                    break;
+                default:
+                    out.append( "\\u00" ).append( HEX[ c >> 4 ] )
+                            .append( HEX[ c & 0xf ] );
+            }
+        }
+        out.append( s, start, s.length() ).append( '"' );
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Size in chars at which the scratch buffer of a primitive array is
+     * handed to a sink that is not a StringBuilder.
+     */
+    private static final int SCRATCH_SIZE = 1 << 10;
+
+    /**
+     * Write a primitive array with a typed loop. A char[] is written as
+     * string, a byte[] as Base64 string when the layout says so. The numbers
+     * are appended straight to a StringBuilder sink. Other sinks get them
+     * through a small scratch buffer, so a large array is never held in
+     * memory as text.
+     *
+     * NaN and infinite floating point values have no JSON form and are
+     * rejected; the elements before them have been written by then.
+     *
+     * @param array  to write
+     * @param out    sink
+     * @param layout for the separator and the byte array form
+     *
+     * @throws IOException              when the sink does
+     * @throws IllegalArgumentException on a NaN or infinite element
+     */
+    static void writePrimitiveArray( Object array, Appendable out,
+            JsonLayout layout ) throws IOException {
+        if ( array instanceof char[] ) {
+            writeQuoted( CharBuffer.wrap( (char[]) array ), out );
+            return;
+        }
+        if ( array instanceof byte[] && layout.byteArraysAsBase64() ) {
+            writeBase64( (byte[]) array, out );
+            return;
+        }
+        StringBuilder sb = out instanceof StringBuilder ? (StringBuilder) out
+                : new StringBuilder( SCRATCH_SIZE + 64 );
+        String separator = layout.inlineSeparator();
+        sb.append( '[' );
+        if ( array instanceof int[] ) {
+            int[] a = (int[]) array;
+            for ( int i = 0; i < a.length; i++ ) {
+                separate( sb, i, separator ).append( a[ i ] );
+                spill( sb, out );
+            }
+        } else if ( array instanceof long[] ) {
+            long[] a = (long[]) array;
+            for ( int i = 0; i < a.length; i++ ) {
+                separate( sb, i, separator ).append( a[ i ] );
+                spill( sb, out );
+            }
+        } else if ( array instanceof double[] ) {
+            double[] a = (double[]) array;
+            for ( int i = 0; i < a.length; i++ ) {
+                separate( sb, i, separator ).append( finite( a[ i ] ) );
+                spill( sb, out );
+            }
+        } else if ( array instanceof float[] ) {
+            float[] a = (float[]) array;
+            for ( int i = 0; i < a.length; i++ ) {
+                separate( sb, i, separator ).append( finite( a[ i ] ) );
+                spill( sb, out );
+            }
+        } else if ( array instanceof short[] ) {
+            short[] a = (short[]) array;
+            for ( int i = 0; i < a.length; i++ ) {
+                separate( sb, i, separator ).append( a[ i ] );
+                spill( sb, out );
+            }
+        } else if ( array instanceof byte[] ) {
+            byte[] a = (byte[]) array;
+            for ( int i = 0; i < a.length; i++ ) {
+                separate( sb, i, separator ).append( a[ i ] );
+                spill( sb, out );
+            }
         } else {
-            return '"' + value.toString() + '"';
+            boolean[] a = (boolean[]) array;
+            for ( int i = 0; i < a.length; i++ ) {
+                separate( sb, i, separator ).append( a[ i ] );
+                spill( sb, out );
+            }
+        }
+        sb.append( ']' );
+        if ( sb != out ) {
+            out.append( sb );
+        }
+    }
+
+    /**
+     * Hand a full scratch buffer to the sink and empty it.
+     */
+    private static void spill( StringBuilder scratch, Appendable out ) throws
+            IOException {
+        if ( scratch != out && scratch.length() >= SCRATCH_SIZE ) {
+            out.append( scratch );
+            scratch.setLength( 0 );
         }
     }
 
-    private static final Map<Class<?>, Function<? super Object, String>> primArrayMapper
-            = Map.of(
-                    int.class, ( e ) -> Arrays.toString( (int[]) e ),
-                    long.class, ( e ) -> Arrays.toString( (long[]) e ),
-                    float.class, ( e ) -> Arrays.toString( (float[]) e ),
-                    double.class, ( e ) -> Arrays.toString( (double[]) e ),
-                    short.class, ( e ) -> Arrays.toString( (short[]) e ),
-                    byte.class, ( e ) -> Arrays.toString( (byte[]) e ),
-                    char.class, ( e ) -> Arrays.toString( (char[]) e ),
-                    boolean.class, ( e ) -> Arrays.toString( (boolean[]) e )
-            );
+    private static double finite( double d ) {
+        if ( !Double.isFinite( d ) ) {
+            throw new IllegalArgumentException( d
+                    + " cannot be written as JSON number" );
+        }
+        return d;
+    }
+
+    private static float finite( float f ) {
+        if ( !Float.isFinite( f ) ) {
+            throw new IllegalArgumentException( f
+                    + " cannot be written as JSON number" );
+        }
+        return f;
+    }
+
+    /**
+     * Write bytes as Base64 string, encoded straight into the sink.
+     */
+    private static void writeBase64( byte[] bytes, Appendable out ) throws
+            IOException {
+        OutputStream chars = new OutputStream() {
+            @Override
+            public void write( int b ) throws IOException {
+                out.append( (char) b );
+            }
+        };
+        out.append( '"' );
+        try ( OutputStream encoder = Base64.getEncoder().wrap( chars ) ) {
+            encoder.write( bytes );
+        }
+        out.append( '"' );
+    }
 
-    private static String primitiveArrayString( Class<?> elemenType,
-            Object entity ) {
-        return primArrayMapper.get( elemenType ).apply( entity );
+    private static StringBuilder separate( StringBuilder sb, int i,
+            String separator ) {
+        return i > 0 ? sb.append( separator ) : sb;
     }
 }
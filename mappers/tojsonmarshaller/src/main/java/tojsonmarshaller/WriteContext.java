@@ -0,0 +1,41 @@
+package tojsonmarshaller;
+
+import java.io.IOException;
+
+/**
+ * State of one marshalling run: the layout, the nesting depth and, when
+ * entities are tracked, the reference tracker.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+final class WriteContext {
+
+    final JsonLayout layout;
+
+    /**
+     * Null when entities are not tracked.
+     */
+    final ReferenceTracker references;
+    private int depth;
+
+    WriteContext( JsonLayout layout, ReferenceTracker references, int depth ) {
+        this.layout = layout;
+        this.references = references;
+        this.depth = depth;
+    }
+
+    void open( char bracket, Appendable out ) throws IOException {
+        out.append( bracket );
+        layout.newline( out, ++depth );
+    }
+
+    void separate( Appendable out ) throws IOException {
+        out.append( ',' );
+        layout.newline( out, depth );
+    }
+
+    void close( char bracket, Appendable out ) throws IOException {
+        layout.newline( out, --depth );
+        out.append( bracket );
+    }
+}
@@ -23,6 +23,15 @@ public class Car {
                             new Door( "rightDoor", "white" ) };
     }
 
+    public Car( String brand, String color, Engine engine, Door[] doors,
+            List<String> wheels ) {
+        this.brand = brand;
+        this.color = color;
+        this.engine = engine;
+        this.doors = doors;
+        this.wheels = wheels;
+    }
+
     public String getBrand() {
         return brand;
     }
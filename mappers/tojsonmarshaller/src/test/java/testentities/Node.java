@@ -0,0 +1,37 @@
+package testentities;
+
+import nl.fontys.sebivenlo.sebiannotations.ID;
+
+/**
+ * Linked entity, to build shared and cyclic graphs.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+public class Node {
+
+    @ID
+    final String name;
+    Node next;
+
+    public Node( String name, Node next ) {
+        this.name = name;
+        this.next = next;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Node getNext() {
+        return next;
+    }
+
+    public void setNext( Node next ) {
+        this.next = next;
+    }
+
+    @Override
+    public String toString() {
+        return "Node{" + "name=" + name + '}';
+    }
+}
@@ -0,0 +1,36 @@
+package testentities;
+
+import java.util.LinkedList;
+import java.util.TreeSet;
+import nl.fontys.sebivenlo.sebiannotations.ID;
+
+/**
+ * Entity with concrete collection types.
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+public class Shelf {
+
+    @ID
+    final String name;
+    final LinkedList<String> items;
+    final TreeSet<Integer> sizes;
+
+    public Shelf( String name, LinkedList<String> items, TreeSet<Integer> sizes ) {
+        this.name = name;
+        this.items = items;
+        this.sizes = sizes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LinkedList<String> getItems() {
+        return items;
+    }
+
+    public TreeSet<Integer> getSizes() {
+        return sizes;
+    }
+}
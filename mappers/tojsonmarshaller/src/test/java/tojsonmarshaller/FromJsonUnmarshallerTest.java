@@ -0,0 +1,210 @@
+package tojsonmarshaller;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeSet;
+import static java.util.stream.Collectors.toList;
+import java.util.stream.Stream;
+import static org.assertj.core.api.Assertions.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import testentities.Car;
+import testentities.Engine;
+import testentities.Node;
+import testentities.Shelf;
+import testentities.Student;
+import static tojsonmarshaller.FromJsonUnmarshaller.*;
+import static tojsonmarshaller.TestData.*;
+import static tojsonmarshaller.ToJsonMarshaller.asJson;
+
+/**
+ *
+ * @author "Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}"
+ */
+public class FromJsonUnmarshallerTest {
+
+    @BeforeAll
+    static void loadMapper() throws ClassNotFoundException {
+        Class.forName( "client.StudentMapper" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tStudentRoundTrip() {
+        Student back = fromJson( asJson( jan ), Student.class );
+        assertThat( back ).usingRecursiveComparison().isEqualTo( jan );
+//        fail( "method StudentRoundTrip completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tStudentListRoundTrip() {
+        List<Student> studs = List.of( jan, piet );
+        List<Student> back = listFromJson( asJson( studs ), Student.class );
+        assertThat( back ).usingRecursiveFieldByFieldElementComparator()
+                .containsExactly( jan, piet );
+//        fail( "method StudentListRoundTrip completed succesfully; you know what to do" );
+    }
+
+    /**
+     * Nested entity, entity array and list of strings.
+     */
+    //@Disabled("Think TDD")
+    @Test
+    void tCarRoundTrip() {
+        Car car = new Car( "BMW", "Black", new Engine( "Diesel", 6, 250.0D ) );
+        String json = asJson( car );
+        Car back = fromJson( json, Car.class );
+        assertThat( back ).usingRecursiveComparison().isEqualTo( car );
+        assertThat( asJson( back ) ).isEqualTo( json );
+//        fail( "method CarRoundTrip completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tPrimitiveArray() {
+        int[] nums = { 1, 2, 3, 4, 5 };
+        assertThat( fromJson( asJson( nums ), int[].class ) )
+                .containsExactly( nums );
+//        fail( "method PrimitiveArray completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tAllPrimitiveArrays() {
+        long[] longs = { Long.MIN_VALUE, 0, Long.MAX_VALUE };
+        double[] doubles = { -1.5, 0, 2e10 };
+        float[] floats = { 1.25f, -3 };
+        short[] shorts = { Short.MIN_VALUE, Short.MAX_VALUE };
+        boolean[] booleans = { true, false, true };
+        assertThat( fromJson( asJson( longs ), long[].class ) )
+                .containsExactly( longs );
+        assertThat( fromJson( asJson( doubles ), double[].class ) )
+                .containsExactly( doubles );
+        assertThat( fromJson( asJson( floats ), float[].class ) )
+                .containsExactly( floats );
+        assertThat( fromJson( asJson( shorts ), short[].class ) )
+                .containsExactly( shorts );
+        assertThat( fromJson( asJson( booleans ), boolean[].class ) )
+                .containsExactly( booleans );
+        assertThat( fromJson( "[1,null,3]", int[].class ) )
+                .containsExactly( 1, 0, 3 );
+//        fail( "method AllPrimitiveArrays completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tNumberOutOfRange() {
+        assertThat( fromJson( "-9223372036854775808", Long.class ) )
+                .isEqualTo( Long.MIN_VALUE );
+        assertThatThrownBy( () -> fromJson( "9223372036854775808", Long.class ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "at offset" );
+        assertThatThrownBy( () -> fromJson( "[2147483648]", int[].class ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "at offset" );
+        assertThatThrownBy( () -> fromJson( "128", Byte.class ) )
+                .isInstanceOf( IllegalArgumentException.class );
+//        fail( "method NumberOutOfRange completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tDeclaredCollectionTypes() {
+        LinkedList<String> items = new LinkedList<>( List.of( "b", "a" ) );
+        TreeSet<Integer> sizes = new TreeSet<>( List.of( 3, 1, 2 ) );
+        Shelf back = fromJson( asJson( new Shelf( "top", items, sizes ) ),
+                Shelf.class );
+        assertThat( back.getItems() ).isInstanceOf( LinkedList.class )
+                .containsExactly( "b", "a" );
+        assertThat( back.getSizes() ).isInstanceOf( TreeSet.class )
+                .containsExactly( 1, 2, 3 );
+        assertThatThrownBy( () -> collectionFactory( EnumSet.class ) )
+                .isInstanceOf( IllegalArgumentException.class );
+//        fail( "method DeclaredCollectionTypes completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tUnknownKeysAndEscapes() {
+        Engine e = fromJson( "{\"type\":\"V\\u0038\",\"valves\":[1,{}],"
+                + "\"hp\":1e2}", Engine.class );
+        assertThat( e ).extracting( "type", "cilinders", "hp" )
+                .containsExactly( "V8", 0, 100.0D );
+//        fail( "method UnknownKeysAndEscapes completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tMalformed() {
+        assertThatThrownBy( () -> fromJson( "{\"type\" \"V8\"}", Engine.class ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "offset 8" );
+        assertThatThrownBy( () -> fromJson( "{} x", Engine.class ) )
+                .isInstanceOf( IllegalArgumentException.class );
+//        fail( "method Malformed completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tSharedReferences() {
+        Node shared = new Node( "shared", null );
+        String json = asJson( List.of( new Node( "a", shared ),
+                new Node( "b", shared ) ), ToJsonMarshaller.References.IDS );
+        List<Node> back = listFromJson( json, Node.class );
+        assertThat( back.get( 0 ).getNext() ).isSameAs( back.get( 1 ).getNext() )
+                .extracting( "name" ).isEqualTo( "shared" );
+//        fail( "method SharedReferences completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tCycleCannotBeConstructed() {
+        Node x = new Node( "x", null );
+        x.setNext( new Node( "y", x ) );
+        String json = asJson( x, ToJsonMarshaller.References.IDS );
+        assertThatThrownBy( () -> fromJson( json, Node.class ) )
+                .isInstanceOf( IllegalArgumentException.class )
+                .hasMessageContaining( "unresolved reference 1" );
+//        fail( "method CycleCannotBeConstructed completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tCharAndByteArrays() {
+        char[] chars = { 'a', '"', 'b' };
+        assertThat( fromJson( asJson( chars ), char[].class ) )
+                .containsExactly( chars );
+        byte[] bytes = { 1, 2, 3, -4 };
+        assertThat( fromJson( asJson( bytes ), byte[].class ) )
+                .containsExactly( bytes );
+        assertThat( fromJson( "\"AQID/A==\"", byte[].class ) )
+                .containsExactly( bytes );
+//        fail( "method CharAndByteArrays completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tJsonLinesRoundTrip() throws IOException {
+        StringWriter out = new StringWriter();
+        ToJsonMarshaller.writeJsonLines( Stream.of( jan, piet ), out );
+        List<Student> back = jsonLines( new StringReader( out.toString() ),
+                Student.class ).collect( toList() );
+        assertThat( back ).usingRecursiveFieldByFieldElementComparator()
+                .containsExactly( jan, piet );
+//        fail( "method JsonLinesRoundTrip completed succesfully; you know what to do" );
+    }
+
+    //@Disabled("Think TDD")
+    @Test
+    void tJsonLinesIsLazy() {
+        Stream<Integer> numbers = jsonLines( new StringReader( "1\n2\n3\nnot json" ),
+                Integer.class );
+        assertThat( numbers.limit( 3 ) ).containsExactly( 1, 2, 3 );
+//        fail( "method JsonLinesIsLazy completed succesfully; you know what to do" );
+    }
+}
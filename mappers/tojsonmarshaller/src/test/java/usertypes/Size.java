@@ -0,0 +1,15 @@
+package usertypes;
+
+/**
+ * Enum with a toString that differs from the name.
+ *
+ * @author Pieter van den Hombergh {@code pieter.van.den.hombergh@gmail.com}
+ */
+public enum Size {
+    SMALL, LARGE;
+
+    @Override
+    public String toString() {
+        return name().toLowerCase();
+    }
+}